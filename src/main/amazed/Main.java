@@ -3,6 +3,7 @@ package amazed;
 import java.lang.invoke.MethodHandles;
 
 import amazed.maze.Amazed;
+import amazed.maze.SolverKind;
 
 
 public class Main
@@ -14,18 +15,41 @@ public class Main
                            + "\n"
                            + "usage: java " + className + " MAP [SOLVER] [PERIOD]\n"
                            + "\n"
-                           + " MAP    filename with map file\n"
-                           + " SOLVER 'sequential' or 'parallel-N' solver, forking after N steps\n"
-                           + " PERIOD time in millisecond between steps (0: don't animate)");
+                           + " MAP    filename with map file, in text or binary format\n"
+                           + " SOLVER one of:\n"
+                           + "          sequential  depth-first search (default)\n"
+                           + "          dense       depth-first search on primitive data structures\n"
+                           + "          parallel-N  fork/join depth-first search, forking after N steps\n"
+                           + "          adaptive-N  fork/join depth-first search, forking after N steps\n"
+                           + "                      only when workers run out of tasks\n"
+                           + "          bfs         fork/join breadth-first search for a shortest path\n"
+                           + "          hybridbfs   direction-optimizing (top-down/bottom-up) breadth-first\n"
+                           + "                      search for a shortest path\n"
+                           + "          bidirectional-N  breadth-first search from start and goals;\n"
+                           + "                      with N = 2, each side runs on its own worker\n"
+                           + "          astar       A* search for a shortest path\n"
+                           + "          jps         Jump Point Search for a shortest path\n"
+                           + "          junction    shortest path search on the graph of junctions,\n"
+                           + "                      with corridors contracted into single edges\n"
+                           + "          deadend     parallel dead-end filling, then depth-first search\n"
+                           + "          alt-K       A* search for a shortest path, with distances\n"
+                           + "                      from K landmarks (default: 8) as heuristic\n"
+                           + "          batch-N     N shortest path searches from random nodes, run\n"
+                           + "                      concurrently on a dedicated pool (default: 10000)\n"
+                           + "          multigoal-K fork/join breadth-first search for shortest paths\n"
+                           + "                      to the K nearest goals (K = 0: all goals)\n"
+                           + "        appending +deadend to sequential, dense, parallel-N, or adaptive-N\n"
+                           + "        fills dead ends before the search, which then skips them\n"
+                           + " PERIOD time in millisecond between steps (0: don't animate)\n"
+                           + "\n"
+                           + "Node identifiers are random, unless given a seed with -Damazed.seed=SEED.");
         System.exit(0);
     }
 
-    private final static String SEQUENTIAL = "sequential";
-    private final static String PARALLEL = "parallel";
-
     private static String map;
-    private static boolean sequential = true;
-    private static int forkAfter = 0;
+    private static SolverKind kind = SolverKind.SEQUENTIAL;
+    private static int parameter = 0;
+    private static boolean prune = false;
     private static int period = 500;
 
     private static void parseArguments(String[] args)
@@ -34,23 +58,25 @@ public class Main
             map = args[0];
             if (args.length >= 2) {
                 String solver = args[1];
-                if (solver.equals(SEQUENTIAL))
-                    sequential = true;
-                else {
-                    sequential = false;
-                    String[] splitSolver = solver.split("-");
-                    if (splitSolver.length == 2) {
-                        if (splitSolver[0].equals(PARALLEL)) {
-                            try {
-                                forkAfter = Integer.parseInt(splitSolver[1]);
-                            } catch (NumberFormatException e) {
-                                printUsageAndExit();
-                            }
-                        } else
-                            printUsageAndExit();
-                    } else
-                        printUsageAndExit();
+                if (solver.endsWith("+deadend")) {
+                    prune = true;
+                    solver = solver.substring(0, solver.length() - "+deadend".length());
                 }
+                String[] splitSolver = solver.split("-");
+                kind = SolverKind.fromName(splitSolver[0]);
+                if (kind == null || splitSolver.length > 2)
+                    printUsageAndExit();
+                if (splitSolver.length == 2) {
+                    try {
+                        parameter = Integer.parseInt(splitSolver[1]);
+                    } catch (NumberFormatException e) {
+                        printUsageAndExit();
+                    }
+                } else if (kind == SolverKind.PARALLEL)
+                    printUsageAndExit();
+                if (prune && kind != SolverKind.SEQUENTIAL && kind != SolverKind.DENSE
+                    && kind != SolverKind.PARALLEL && kind != SolverKind.ADAPTIVE)
+                    printUsageAndExit();
                 if (args.length >= 3) {
                     try {
                         period = Integer.parseInt(args[2]);
@@ -67,7 +93,7 @@ public class Main
     throws InterruptedException
     {
         parseArguments(args);
-        Amazed amazed = new Amazed(map, sequential, forkAfter, period);
+        Amazed amazed = new Amazed(map, kind, parameter, prune, period);
         long start = System.currentTimeMillis();
         amazed.solve();
         long stop = System.currentTimeMillis();
@@ -0,0 +1,94 @@
+package amazed.maze;
+
+
+// precomputed adjacency of all cells on a board, indexed by the
+// row-major position (row * nCols + col) of each cell
+//
+// every cell stores a 4-bit mask with one bit per direction whose
+// adjacent cell is accessible, plus one bit telling whether the cell
+// itself is accessible; after creation, read-only access
+class Adjacency
+{
+    static final int NORTH = 1;
+    static final int SOUTH = 2;
+    static final int WEST = 4;
+    static final int EAST = 8;
+    static final int DIRECTIONS = NORTH | SOUTH | WEST | EAST;
+    static final int ACCESSIBLE = 16;
+
+    private final byte[] masks;
+    private final int nCols;
+
+    Adjacency(Board board)
+    {
+        int nRows = board.getRows();
+        nCols = board.getCols();
+        masks = new byte[nRows*nCols];
+        for (int row = 0; row < nRows; row++) {
+            for (int col = 0; col < nCols; col++) {
+                int mask = 0;
+                if (board.isAccessible(row, col))
+                    mask |= ACCESSIBLE;
+                if (board.isAccessible(row - 1, col))
+                    mask |= NORTH;
+                if (board.isAccessible(row + 1, col))
+                    mask |= SOUTH;
+                if (board.isAccessible(row, col - 1))
+                    mask |= WEST;
+                if (board.isAccessible(row, col + 1))
+                    mask |= EAST;
+                masks[row*nCols + col] = (byte) mask;
+            }
+        }
+    }
+
+    int mask(int index)
+    {
+        return masks[index] & DIRECTIONS;
+    }
+
+    boolean isAccessible(int index)
+    {
+        return (masks[index] & ACCESSIBLE) != 0;
+    }
+
+    int degree(int index)
+    {
+        return Integer.bitCount(masks[index] & DIRECTIONS);
+    }
+
+    // index of the accessible cell adjacent to `index' in `direction', or -1
+    int neighbor(int index, Direction direction)
+    {
+        // bits NORTH, SOUTH, WEST, EAST follow the order of Direction
+        if ((masks[index] & (1 << direction.ordinal())) == 0)
+            return -1;
+        switch (direction) {
+        case NORTH:
+            return index - nCols;
+        case SOUTH:
+            return index + nCols;
+        case WEST:
+            return index - 1;
+        default:
+            return index + 1;
+        }
+    }
+
+    // store in `buffer' the indexes of all accessible cells adjacent
+    // to `index', in the order of Direction, and return how many
+    int neighbors(int index, int[] buffer)
+    {
+        int mask = masks[index];
+        int count = 0;
+        if ((mask & NORTH) != 0)
+            buffer[count++] = index - nCols;
+        if ((mask & SOUTH) != 0)
+            buffer[count++] = index + nCols;
+        if ((mask & WEST) != 0)
+            buffer[count++] = index - 1;
+        if ((mask & EAST) != 0)
+            buffer[count++] = index + 1;
+        return count;
+    }
+}
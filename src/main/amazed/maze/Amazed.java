@@ -1,23 +1,51 @@
 package amazed.maze;
 
 import java.awt.EventQueue;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveTask;
 
 import amazed.solver.SequentialSolver;
+import amazed.solver.DenseSequentialSolver;
+import amazed.solver.DeadEndFilling;
+import amazed.solver.DeadEndSolver;
 import amazed.solver.ForkJoinSolver;
+import amazed.solver.ParallelBreadthFirstSolver;
+import amazed.solver.DirectionOptimizingSolver;
+import amazed.solver.BidirectionalSolver;
+import amazed.solver.AStarSolver;
+import amazed.solver.JumpPointSolver;
+import amazed.solver.JunctionSolver;
+import amazed.solver.LandmarkOracle;
+import amazed.solver.LandmarkSolver;
+import amazed.solver.MultiGoalSolver;
+import amazed.solver.QueryEngine;
+import amazed.solver.SolverStatistics;
 
 /**
  * <code>Amazed</code> is a simple application class that applies a
  * solver to a maze.
  * <p>
- * This class supports sequential solvers of class
- * <code>SequentialSolver</code> and fork/join solvers of class
- * <code>ForkJoinSolver</code>. It runs both using the common pool of
+ * This class supports the kinds of solvers enumerated by
+ * <code>SolverKind</code>: sequential solvers of class
+ * <code>SequentialSolver</code> and <code>DenseSequentialSolver</code>,
+ * fork/join solvers of classes <code>ForkJoinSolver</code>,
+ * <code>ParallelBreadthFirstSolver</code>,
+ * <code>DirectionOptimizingSolver</code>, and
+ * <code>MultiGoalSolver</code>, and solvers of classes
+ * <code>BidirectionalSolver</code>, <code>AStarSolver</code>,
+ * <code>JumpPointSolver</code>, <code>JunctionSolver</code>,
+ * <code>DeadEndSolver</code>, and <code>LandmarkSolver</code>. It runs
+ * all of them using the common pool of
  * <code>java.util.concurrent.ForkJoinPool</code>; thus, the solvers
  * must be a subtype of
- * <code>RecursiveTask&lt;List&lt;Integer&gt;&gt;</code>. After creating an
+ * <code>RecursiveTask&lt;List&lt;Integer&gt;&gt;</code>. Kind
+ * <code>SolverKind.BATCH</code> instead runs many queries on a
+ * <code>QueryEngine</code>, with its own pool, and reports their
+ * throughput. After creating an
  * instance from a map file, the solving process is started by calling
  * method <code>solve</code>. After <code>solve</code> terminates, the
  * solution can be displayed by calling method
@@ -31,6 +59,9 @@ public class Amazed
     private Maze maze;
     private RecursiveTask<List<Integer>> solver;
     private List<Integer> path;
+    private boolean prune;
+    // number of queries for SolverKind.BATCH; 0 for other kinds
+    private int queries;
 
     /**
      * Creates a maze reading from map file <code>map</code>.
@@ -55,7 +86,70 @@ public class Amazed
      */
     public Amazed(String map, boolean sequentialSolver, int forkAfter, int animationDelay)
     {
+        this(map, sequentialSolver ? SolverKind.SEQUENTIAL : SolverKind.PARALLEL,
+             forkAfter, animationDelay);
+    }
+
+    /**
+     * Creates a maze reading from map file <code>map</code>, to be
+     * searched by a given kind of solver.
+     *
+     * @param map              the name of the map file describing the maze to be searched
+     * @param kind             the kind of solver used to search the maze
+     * @param parameter        a numeric parameter of the solver; for
+     *                         <code>SolverKind.PARALLEL</code> and
+     *                         <code>SolverKind.ADAPTIVE</code>, it is
+     *                         the number of steps after which a
+     *                         parallel task is forked; for
+     *                         <code>SolverKind.BIDIRECTIONAL</code>,
+     *                         the two sides of the search run in
+     *                         parallel if it is at least 2; for
+     *                         <code>SolverKind.MULTIGOAL</code>, it
+     *                         is the number of nearest goals to be
+     *                         reached, or all goals if it is not
+     *                         positive; for <code>SolverKind.ALT</code>,
+     *                         it is the number of landmarks, or
+     *                         <code>LandmarkOracle.DEFAULT_LANDMARKS</code>
+     *                         if it is not positive; for
+     *                         <code>SolverKind.BATCH</code>, it is the
+     *                         number of queries; other kinds ignore it
+     * @param animationDelay   milliseconds of pause between a step and
+     *                         the next one in the animation of the
+     *                         solution search, as in
+     *                         {@link #Amazed(String, boolean, int, int)}
+     */
+    public Amazed(String map, SolverKind kind, int parameter, int animationDelay)
+    {
+        this(map, kind, parameter, false, animationDelay);
+    }
+
+    /**
+     * Creates a maze reading from map file <code>map</code>, to be
+     * searched by a given kind of solver, possibly after filling the
+     * dead ends of the maze.
+     *
+     * @param map              the name of the map file describing the maze to be searched
+     * @param kind             the kind of solver used to search the maze
+     * @param parameter        a numeric parameter of the solver, as in
+     *                         {@link #Amazed(String, SolverKind, int, int)}
+     * @param prune            if <code>true</code>, method
+     *                         <code>solve</code> fills the dead ends
+     *                         of the maze with
+     *                         <code>DeadEndFilling</code> and has the
+     *                         solver skip the filled nodes before
+     *                         searching; solvers that do not support
+     *                         pruning search the whole maze anyway
+     * @param animationDelay   milliseconds of pause between a step and
+     *                         the next one in the animation of the
+     *                         solution search, as in
+     *                         {@link #Amazed(String, boolean, int, int)}
+     */
+    public Amazed(String map, SolverKind kind, int parameter, boolean prune,
+                  int animationDelay)
+    {
+        this.prune = prune;
         maze = new Maze(map);
+        System.out.println("Loading times: " + maze.loadTimes());
         if (animationDelay >= 0) {
             EventQueue.invokeLater(new Runnable() {
                 @Override
@@ -66,37 +160,136 @@ public class Amazed
             });
         }
         maze.setDelay(animationDelay);
-        if (sequentialSolver)
+        switch (kind) {
+        case SEQUENTIAL:
             solver = new SequentialSolver(maze);
-        else
-            solver = new ForkJoinSolver(maze, forkAfter);
+            break;
+        case DENSE:
+            solver = new DenseSequentialSolver(maze);
+            break;
+        case PARALLEL:
+            solver = new ForkJoinSolver(maze, parameter);
+            break;
+        case ADAPTIVE:
+            solver = new ForkJoinSolver(maze, parameter, true);
+            break;
+        case BFS:
+            solver = new ParallelBreadthFirstSolver(maze);
+            break;
+        case HYBRID_BFS:
+            solver = new DirectionOptimizingSolver(maze);
+            break;
+        case BIDIRECTIONAL:
+            solver = new BidirectionalSolver(maze, parameter >= 2);
+            break;
+        case ASTAR:
+            solver = new AStarSolver(maze);
+            break;
+        case JPS:
+            solver = new JumpPointSolver(maze);
+            break;
+        case JUNCTION:
+            solver = new JunctionSolver(maze);
+            break;
+        case MULTIGOAL:
+            solver = new MultiGoalSolver(maze, parameter);
+            break;
+        case DEADEND:
+            solver = new DeadEndSolver(maze);
+            break;
+        case BATCH:
+            queries = (parameter > 0) ? parameter : DEFAULT_QUERIES;
+            break;
+        case ALT:
+            solver = new LandmarkSolver(maze, (parameter > 0) ? parameter
+                                        : LandmarkOracle.DEFAULT_LANDMARKS);
+            break;
+        }
     }
 
     /**
      * Runs the solver on the maze, waits for termination, and prints
-     * to screen the outcome of the search.
+     * to screen the outcome of the search. If no goal is connected
+     * to the start node, the method reports that no goal can be
+     * found without running the solver.
      */
     public void solve()
     {
-        ForkJoinPool pool = ForkJoinPool.commonPool();
-        path = pool.invoke(solver);
+        if (queries > 0) {
+            solveBatch();
+            return;
+        }
+        if (!maze.reachesGoal(maze.start())) {
+            path = null;
+            System.out.println("Search completed: no goal reachable from start :-(");
+            return;
+        }
+        if (prune && solver instanceof SequentialSolver) {
+            DeadEndFilling filling = new DeadEndFilling(maze);
+            ((SequentialSolver) solver).prune(filling.filled());
+            System.out.println(filling.statistics());
+        }
+        path = ForkJoinPool.commonPool().invoke(solver);
         if (path != null && maze.isValidPath(path))
             System.out.println("Goal found :-D");
         else
             System.out.println("Search completed: no goal found :-(");
-        pool.shutdown();
+        if (solver instanceof SolverStatistics)
+            System.out.println(((SolverStatistics) solver).statistics());
+    }
+
+    /**
+     * The number of queries answered with <code>SolverKind.BATCH</code>
+     * if none is given.
+     */
+    public static final int DEFAULT_QUERIES = 10000;
+
+    // answer `queries' queries from random accessible nodes to the
+    // maze's goals with a QueryEngine, and print the throughput
+    private void solveBatch()
+    {
+        List<Integer> accessible = new ArrayList<>();
+        for (int index = 0; index < maze.size(); index++) {
+            if (maze.isAccessibleAt(index))
+                accessible.add(maze.idAt(index));
+        }
+        if (accessible.isEmpty()) {
+            System.out.println("Search completed: no accessible node :-(");
+            return;
+        }
+        Random random = new Random(0);
+        List<Query> batch = new ArrayList<>(queries);
+        for (int k = 0; k < queries; k++)
+            batch.add(new Query(maze, accessible.get(random.nextInt(accessible.size()))));
+        AtomicInteger found = new AtomicInteger();
+        long begin = System.nanoTime();
+        try (QueryEngine engine = new QueryEngine(maze)) {
+            engine.solveAll(batch, (query, result) -> {
+                    if (result != null)
+                        found.incrementAndGet();
+                });
+            long elapsed = Math.max(1, (System.nanoTime() - begin) / 1_000_000);
+            System.out.println("Goals found for " + found + " of " + queries + " queries");
+            System.out.println(engine.statistics() + ", " + (queries * 1000L / elapsed) + " queries/s");
+        } catch (InterruptedException e) {
+            System.out.println("Interrupted!");
+        }
     }
 
     /**
      * Displays the solution by removing all players and marking a
      * path from the start node to a goal on the maze graphical
-     * representation. The method only removes the players if no
-     * solution has been found.
+     * representation; with a <code>MultiGoalSolver</code>, it marks
+     * the paths to all reached goals. The method only removes the
+     * players if no solution has been found.
      */
     public void showSolution()
     {
         maze.removePlayers();
-        if (path != null) {
+        if (solver instanceof MultiGoalSolver) {
+            for (List<Integer> goalPath: ((MultiGoalSolver) solver).paths().values())
+                maze.markPath(goalPath);
+        } else if (path != null) {
             maze.markPath(path);
         }
     }
@@ -1,86 +1,277 @@
 package amazed.maze;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.util.Collections;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 
 public class Board
 {
 
+    // Tile ordinal of every cell, in row-major order; Cell objects
+    // are only created on demand, as views for display
     // after creation, read-only access (except for operation markPath)
-    private Cell[][] board;
+    private byte[] tiles;
     private int nRows;
     private int nCols;
 
+    private static final Tile[] TILES = Tile.values();
+    private static final Player[] NO_PLAYERS = new Player[0];
+
     // players currently on the board
     // player identifier --> player object
     private final Map<Integer, Player> players;
+    // players on every accessible cell with some player, and on no other
+    // row-major index of cell --> players on the cell, in arrival order
+    private final Map<Integer, Queue<Player>> occupants = new ConcurrentHashMap<>();
     // count of number of registered players, to ensure unique player ids
     private final AtomicInteger nPlayers = new AtomicInteger();
 
-    // unique node id --> coordinate position of node on board
+    // unique node ids are drawn from [-numCells, numCells) by a
+    // seeded permutation, which converts between ids and row-major
+    // indexes of nodes on board without storing either
+    // after creation, read-only access
+    private int numCells;
+    private IdPermutation ids;
+    private final long seed;
+
+    // system property with the seed of the ids, random if not set
+    static final String SEED_PROPERTY = "amazed.seed";
+
+    // row-major indexes of all cells with a heart
+    // after creation, read-only access
+    private BitSet goals;
+
+    // accessible neighbors of every cell
+    // after creation, read-only access
+    private Adjacency adjacency;
+
+    // connected components of the accessible cells
     // after creation, read-only access
-    private Map<Integer, Position> idToCell;
+    private Components components;
+
+    // duration of every phase of loading the board from a map file
+    private final StringBuilder loadTimes = new StringBuilder();
+    private long lap;
 
     // empty board
     Board(int nRows, int nCols)
     {
-        board = new Cell[nRows][nCols];
+        tiles = new byte[nRows*nCols];
         this.nRows = nRows;
         this.nCols = nCols;
+        this.seed = 0;
         players = new ConcurrentHashMap<>();
-        idToCell = new HashMap<>();
     }
 
-    // board from map `filename'
+    // board from map `filename', with ids seeded by property
+    // SEED_PROPERTY if it is set, and randomly otherwise
     Board(String filename)
     {
+        this(filename, Long.getLong(SEED_PROPERTY, ThreadLocalRandom.current().nextLong()));
+    }
+
+    // board from map `filename', with ids seeded by `seed'
+    Board(String filename, long seed)
+    {
+        this.seed = seed;
+        lap = System.nanoTime();
         try {
             readMap(filename);
-        } catch (IOException e) {
+        } catch (FileNotFoundException | FileSystemException e) {
             System.err.println("Error: cannot open map file " + filename);
             System.exit(1);
+        } catch (IOException e) {
+            System.err.println("Error: cannot read map file " + filename + ": " + e.getMessage());
+            System.exit(1);
         }
         players = new ConcurrentHashMap<>();
+        adjacency = new Adjacency(this);
+        lap("adjacency");
+        components = new Components(adjacency, numCells, goals);
+        lap("components");
+    }
+
+    private void lap(String phase)
+    {
+        long now = System.nanoTime();
+        if (loadTimes.length() > 0)
+            loadTimes.append(", ");
+        loadTimes.append(phase).append(' ').append((now - lap) / 1_000_000).append(" ms");
+        lap = now;
+    }
+
+    // duration of every phase of loading the board from a map file
+    String getLoadTimes()
+    {
+        return loadTimes.toString();
     }
 
+    // view of the cell at row, col, with the players on it at the
+    // time of the call
     Cell getCell(int row, int col)
     {
-        return board[row][col];
+        return getCellAt(row*nCols + col);
     }
 
     Cell getCell(Position position)
     {
-        return board[position.getRow()][position.getCol()];
+        return getCell(position.getRow(), position.getCol());
     }
 
     Cell getCell(int id)
     {
-        return getCell(idToCell.get(id));
+        return getCellAt(getIndex(id));
+    }
+
+    private Cell getCellAt(int index)
+    {
+        Queue<Player> onCell = occupants.get(index);
+        return new Cell(TILES[tiles[index]], ids.id(index),
+                        (onCell == null) ? NO_PLAYERS : onCell.toArray(NO_PLAYERS));
     }
 
     Position getPosition(int id)
     {
-        return idToCell.get(id);
+        int index = getIndex(id);
+        if (index < 0)
+            return null;
+        return new Position(index / nCols, index % nCols);
+    }
+
+    // row-major index of `position' on the board
+    int getIndex(Position position)
+    {
+        return position.getRow()*nCols + position.getCol();
+    }
+
+    // row-major index of the cell with `id', or -1 if no cell has `id'
+    int getIndex(int id)
+    {
+        return ids.index(id);
+    }
+
+    // id of the cell at row-major `index'
+    int getId(int index)
+    {
+        return ids.id(index);
+    }
+
+    int getNumCells()
+    {
+        return numCells;
+    }
+
+    boolean isGoal(int index)
+    {
+        return goals.get(index);
+    }
+
+    // row-major indexes of all cells with a heart, in increasing order
+    int[] getGoals()
+    {
+        return goals.stream().toArray();
+    }
+
+    // store in `buffer' the ids of all accessible cells adjacent to
+    // the cell with `id', and return how many
+    int neighbors(int id, int[] buffer)
+    {
+        int count = adjacency.neighbors(ids.index(id), buffer);
+        for (int k = 0; k < count; k++)
+            buffer[k] = ids.id(buffer[k]);
+        return count;
+    }
+
+    int degree(int id)
+    {
+        return adjacency.degree(ids.index(id));
+    }
+
+    // store in `buffer' the indexes of all accessible cells adjacent
+    // to the cell at `index', and return how many
+    int neighborsAt(int index, int[] buffer)
+    {
+        return adjacency.neighbors(index, buffer);
+    }
+
+    int degreeAt(int index)
+    {
+        return adjacency.degree(index);
+    }
+
+    int neighborAt(int index, Direction direction)
+    {
+        return adjacency.neighbor(index, direction);
+    }
+
+    boolean isAccessibleAt(int index)
+    {
+        return adjacency.isAccessible(index);
+    }
+
+    // component of the cell at `index', or -1 if it is not accessible
+    int componentAt(int index)
+    {
+        return components.label(index);
+    }
+
+    int numComponents()
+    {
+        return components.count();
+    }
+
+    boolean isConnectedAt(int index, int otherIndex)
+    {
+        return components.connected(index, otherIndex);
+    }
+
+    // is some goal reachable from the cell at `index'? searches may
+    // step out of an inaccessible cell, such as a start on a wall,
+    // into its accessible neighbors, so for such a cell this tests
+    // the components of its neighbors
+    boolean reachesGoalAt(int index)
+    {
+        if (adjacency.isAccessible(index))
+            return components.reachesGoal(index);
+        int[] buffer = new int[Maze.MAX_NEIGHBORS];
+        int count = adjacency.neighbors(index, buffer);
+        for (int k = 0; k < count; k++) {
+            if (components.reachesGoal(buffer[k]))
+                return true;
+        }
+        return false;
+    }
+
+    // Manhattan distance between the cells at row-major `index' and `otherIndex'
+    int distanceAt(int index, int otherIndex)
+    {
+        return Math.abs(index / nCols - otherIndex / nCols)
+            + Math.abs(index % nCols - otherIndex % nCols);
     }
 
     int getWidth()
     {
-        return nCols * board[0][0].getWidth();
+        return nCols * getCell(0, 0).getWidth();
     }
 
     int getHeight()
     {
-        return nRows * board[0][0].getHeight();
+        return nRows * getCell(0, 0).getHeight();
     }
 
     int getRows()
@@ -106,75 +297,120 @@ public class Board
     {
         List<Position> positionPath = pathToPositions(path);
         for (Position position: positionPath) {
-            int row = position.getRow(), col = position.getCol();
-            board[row][col] = getCell(position).marked();
+            int index = getIndex(position);
+            tiles[index] = (byte) TILES[tiles[index]].marked().ordinal();
         }
     }
 
+    // set up an nRows by nCols board with `tiles', and a unique id for
+    // every cell from [-numCells, numCells)
+    private void allocate(int nRows, int nCols, byte[] tiles)
+    {
+        this.nRows = nRows;
+        this.nCols = nCols;
+        this.tiles = tiles;
+        numCells = nRows*nCols;
+        ids = new IdPermutation(numCells, seed);
+        goals = new BitSet(numCells);
+    }
+
     private void readMap(String mapFile)
     throws FileNotFoundException, IOException
     {
-        Cell cell;
-        int row = 0, col = 0, nId = 0;
-        List<Integer> ids = null;
-        try (BufferedReader br = new BufferedReader(new FileReader(mapFile))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                // remove whitespaces
-                line = line.replaceAll("\\s", "");
-                StringReader lineReader = new StringReader(line);
-                int ch, id = 0;
-                line_loop:
-                while ((ch = lineReader.read()) != -1) {
-                    switch (ch) {
-                    case '@':
-                        break line_loop;
-                    case '$':
-                        Pattern p = Pattern.compile("^\\$(\\d+),(\\d+)$");
-                        Matcher m = p.matcher(line);
-                        if (m.find()) {
-                            nRows = Integer.parseInt(m.group(1));
-                            nCols = Integer.parseInt(m.group(2));
-                            board = new Cell[nRows][nCols];
-                            int numCells = nRows*nCols;
-                            ids = new ArrayList<>(2*numCells);
-                            for (int i = -numCells; i < numCells; i++)
-                                ids.add(i);
-                            Collections.shuffle(ids);
-                            idToCell = new HashMap<>(numCells);
-                        }
-                        break line_loop;
-                    default:
-                        if (row < nRows && col < nCols)
-                            id = ids.get(nId++);
-                        if (ch == Tile.EMPTY.getChar())
-                            cell = new Cell(Tile.EMPTY, id);
-                        else if (ch == Tile.SOLID.getChar())
-                            cell = new Cell(Tile.SOLID, id);
-                        else if (ch == Tile.BRICK.getChar())
-                            cell = new Cell(Tile.BRICK, id);
-                        else if (ch == Tile.HEART.getChar())
-                            cell = new Cell(Tile.HEART, id);
-                        else {
-                            System.out.println("Unrecognized symbol " +
-                                               Character.toString((char) ch) + " on " +
-                                               "row " + row + " column " + col);
-                            System.out.println("... using empty cell instead.");
-                            cell = new Cell(Tile.EMPTY, id);
-                        }
-                    }
-                    // Ignore rows and columns beyond the declared ones
-                    if (row < nRows && col < nCols) {
-                        board[row][col] = cell;
-                        idToCell.put(id, new Position(row, col));
-                        col += 1;
-                    }
-                }
-                if (nCols > 0 && col == nCols) {
-                    row += 1;
-                    col = 0;
-                }
+        if (isBinaryMap(mapFile)) {
+            readBinaryMap(mapFile);
+            lap("binary");
+            return;
+        }
+        ParallelMapParser parser = new ParallelMapParser(mapFile);
+        loadTimes.append(parser.getTimes());
+        lap = System.nanoTime();
+        allocate(parser.getRows(), parser.getCols(), parser.getTiles());
+        findGoals();
+        lap("goals");
+    }
+
+    // set `goals' to the indexes of the cells with a heart
+    private void findGoals()
+    {
+        byte heart = (byte) Tile.HEART.ordinal();
+        for (int index = 0; index < numCells; index++) {
+            if (tiles[index] == heart)
+                goals.set(index);
+        }
+    }
+
+    // Binary map format, all integers big-endian:
+    //
+    //   magic (int)   BINARY_MAGIC
+    //   version (int) BINARY_VERSION
+    //   nRows, nCols (int, int)
+    //   nRows*nCols tiles (byte each), in row-major order, each the
+    //                 ordinal of its Tile
+    //
+    // a binary map is memory-mapped and its tiles are copied in bulk
+    // into the board, with no parsing of individual cells; the goals
+    // are the cells with a heart, as in a text map
+    private static final int BINARY_MAGIC = 0x414d5a42; // "AMZB"
+    private static final int BINARY_VERSION = 2;
+    // bytes of tiles mapped at a time, within FileChannel.map's limit
+    private static final int BINARY_WINDOW = 1 << 30;
+
+    // does `mapFile' begin with the binary map magic number?
+    private static boolean isBinaryMap(String mapFile)
+    throws FileNotFoundException, IOException
+    {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(mapFile))) {
+            return in.readInt() == BINARY_MAGIC;
+        } catch (EOFException e) {
+            return false;
+        }
+    }
+
+    private void readBinaryMap(String mapFile)
+    throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(Paths.get(mapFile), StandardOpenOption.READ)) {
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                                                  Math.min(channel.size(), BINARY_WINDOW));
+            long offset;
+            try {
+                if (header.getInt() != BINARY_MAGIC || header.getInt() != BINARY_VERSION)
+                    throw new IOException("unsupported binary map format");
+                long rows = header.getInt(), cols = header.getInt();
+                if (rows < 0 || cols < 0 || rows*cols > Integer.MAX_VALUE)
+                    throw new IOException("invalid binary map size");
+                allocate((int) rows, (int) cols, new byte[(int) (rows*cols)]);
+                offset = header.position();
+            } catch (BufferUnderflowException e) {
+                throw new IOException("truncated binary map");
             }
+            if (channel.size() < offset + numCells)
+                throw new IOException("truncated binary map");
+            for (int index = 0; index < numCells; index += BINARY_WINDOW) {
+                int length = Math.min(numCells - index, BINARY_WINDOW);
+                channel.map(FileChannel.MapMode.READ_ONLY, offset + index, length)
+                    .get(0, tiles, index, length);
+            }
+            for (int index = 0; index < numCells; index++) {
+                if (tiles[index] < 0 || tiles[index] >= TILES.length)
+                    throw new IOException("invalid tile at index " + index);
+            }
+            findGoals();
+        }
+    }
+
+    // write the board, as loaded, to `mapFile' in binary map format
+    void writeBinaryMap(String mapFile)
+    throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(
+                 new BufferedOutputStream(new FileOutputStream(mapFile), 1 << 16))) {
+            out.writeInt(BINARY_MAGIC);
+            out.writeInt(BINARY_VERSION);
+            out.writeInt(nRows);
+            out.writeInt(nCols);
+            out.write(tiles);
         }
     }
 
@@ -184,7 +420,7 @@ public class Board
         for (int row = 0; row < nRows; row++) {
             for (int col = 0; col < nCols; col++) {
                 result.append(' ');
-                result.append(board[row][col].getText());
+                result.append(getCell(row, col).getText());
             }
             result.append('\n');
         }
@@ -195,12 +431,10 @@ public class Board
     Board consistentBoard()
     {
         Board result = new Board(nRows, nCols);
-        for (int row = 0; row < nRows; row++) {
-            for (int col = 0; col < nCols; col++) {
-                Cell cell = board[row][col];
-                result.board[row][col] = new Cell(cell.getTile(), cell.getId());
-            }
-        }
+        result.numCells = numCells;
+        result.ids = ids;
+        result.goals = goals;
+        System.arraycopy(tiles, 0, result.tiles, 0, tiles.length);
         for (Player player: players.values()) {
             Position pos = player.getPosition();
             Player newPlayer = new Player(player.getId(), player.getName());
@@ -217,7 +451,7 @@ public class Board
 
     boolean isAccessible(int row, int col)
     {
-        return isOnBoard(row, col) && board[row][col].isAccessible();
+        return isOnBoard(row, col) && TILES[tiles[row*nCols + col]].isAccessible();
     }
 
     Position move(Position position, Direction direction)
@@ -245,7 +479,7 @@ public class Board
     void register(Player player, int row, int col)
     {
         if (isOnBoard(row, col)) {
-            board[row][col].add(player);
+            addOccupant(row*nCols + col, player);
             players.put(player.getId(), player);
         }
     }
@@ -261,7 +495,7 @@ public class Board
     void deregister(Player player, int row, int col)
     {
         if (isOnBoard(row, col)) {
-            board[row][col].remove(player);
+            removeOccupant(row*nCols + col, player);
             players.remove(player.getId());
         }
     }
@@ -286,10 +520,34 @@ public class Board
         int row = player.getRow();
         int col = player.getCol();
         if (isOnBoard(newRow, newCol) && players.containsKey(player.getId())) {
-            board[row][col].remove(player);
-            board[newRow][newCol].add(player);
+            removeOccupant(row*nCols + col, player);
+            addOccupant(newRow*nCols + newCol, player);
             player.setRow(newRow);
             player.setCol(newCol);
         }
     }
+
+    // add `player' to the players on the cell at `index', if accessible;
+    // the queue of a cell is created and dropped atomically with
+    // respect to other updates of the same cell
+    private void addOccupant(int index, Player player)
+    {
+        if (!TILES[tiles[index]].isAccessible())
+            return;
+        occupants.compute(index, (key, onCell) -> {
+                if (onCell == null)
+                    onCell = new ConcurrentLinkedQueue<>();
+                onCell.add(player);
+                return onCell;
+            });
+    }
+
+    // remove `player' from the players on the cell at `index'
+    private void removeOccupant(int index, Player player)
+    {
+        occupants.computeIfPresent(index, (key, onCell) -> {
+                onCell.remove(player);
+                return onCell.isEmpty() ? null : onCell;
+            });
+    }
 }
@@ -1,29 +1,22 @@
 package amazed.maze;
 
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.awt.Image;
-import java.awt.Graphics;
-import java.awt.Toolkit;
 
 
+// view of a cell on a board, with the players on it when the view was
+// created: boards only store tiles and the players on occupied cells,
+// and create cells on demand, for display
 class Cell
 {
     private final Tile tile;
-    private final Queue<Player> players;
-
-    private final Image image;
-    private final Character text;
     private final int id;
+    private final Player[] players;
 
-    Cell(Tile tile, int id)
+    Cell(Tile tile, int id, Player[] players)
     {
         this.tile = tile;
-        this.image = tile.getImage();
-        this.text = tile.getText();
         this.id = id;
-
-        this.players = new ConcurrentLinkedQueue<>();
+        this.players = players;
     }
 
     Tile getTile()
@@ -38,18 +31,18 @@ class Cell
 
     Image getImage()
     {
-        if (players.isEmpty())
-            return image;
+        if (players.length == 0)
+            return tile.getImage();
         else
-            return players.element().getImage();
+            return players[0].getImage();
     }
 
     Character getText()
     {
-        if (players.isEmpty())
-            return text;
+        if (players.length == 0)
+            return tile.getText();
         else
-            return players.element().getText();
+            return players[0].getText();
     }
 
     int getWidth()
@@ -64,22 +57,19 @@ class Cell
 
     boolean isAccessible()
     {
-        return tile == Tile.EMPTY || tile == Tile.HEART;
+        return tile.isAccessible();
     }
 
     boolean isMarkable()
     {
-        return tile == Tile.EMPTY || tile == Tile.HEART;
+        return tile.isMarkable();
     }
 
     Cell marked()
     {
         if (!isMarkable())
             return this;
-        if (isHeart())
-            return new Cell(Tile.FOUND, id);
-        else
-            return new Cell(Tile.MARKED, id);
+        return new Cell(tile.marked(), id, players);
     }
 
     public boolean isHeart()
@@ -87,21 +77,9 @@ class Cell
         return tile == Tile.HEART;
     }
 
-    void add(Player player)
-    {
-        if (isAccessible())
-            players.add(player);
-    }
-
-    void remove(Player player)
-    {
-        if (isAccessible())
-            players.remove(player);
-    }
-
     // return a copy of the players list
     Player[] getPlayers()
     {
-        return players.toArray(new Player[0]);
+        return players.clone();
     }
 }
@@ -0,0 +1,167 @@
+package amazed.maze;
+
+import java.util.BitSet;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+
+// connected components of the accessible cells on a board, indexed
+// by the row-major position of each cell
+//
+// components are computed once, when the board is loaded, by a
+// lock-free union-find over stripes of cells processed in parallel:
+// every accessible cell is united with its accessible neighbors to
+// the south and to the east; roots are only ever linked under roots
+// with a smaller index, so that concurrent unions cannot create
+// cycles, and finds halve paths with compare-and-set; a final
+// parallel pass labels every cell with the index of its root;
+// after creation, read-only access
+class Components
+{
+    // number of cells processed by a task without splitting
+    private static final int CHUNK = 1 << 14;
+
+    // phases of the computation, each over all cells
+    private static final int INIT = 0;
+    private static final int UNITE = 1;
+    private static final int LABEL = 2;
+
+    // label[index] is the component of the cell at index, or -1
+    private final int[] label;
+    // labels of the components including some goal
+    private final BitSet goalComponents;
+    private final int count;
+
+    Components(Adjacency adjacency, int numCells, BitSet goals)
+    {
+        AtomicIntegerArray parent = new AtomicIntegerArray(numCells);
+        label = new int[numCells];
+        AtomicInteger roots = new AtomicInteger();
+        for (int phase = INIT; phase <= LABEL; phase++)
+            new Pass(phase, adjacency, parent, label, roots, 0, numCells).invoke();
+        count = roots.get();
+        goalComponents = new BitSet(numCells);
+        for (int goal = goals.nextSetBit(0); goal >= 0; goal = goals.nextSetBit(goal + 1)) {
+            if (label[goal] >= 0)
+                goalComponents.set(label[goal]);
+        }
+    }
+
+    // number of components
+    int count()
+    {
+        return count;
+    }
+
+    // component of the cell at `index', or -1 if it is not accessible
+    int label(int index)
+    {
+        return label[index];
+    }
+
+    // are the cells at `index' and `otherIndex' both accessible and
+    // connected?
+    boolean connected(int index, int otherIndex)
+    {
+        return label[index] >= 0 && label[index] == label[otherIndex];
+    }
+
+    // is some goal connected to the cell at `index'?
+    boolean reachesGoal(int index)
+    {
+        return label[index] >= 0 && goalComponents.get(label[index]);
+    }
+
+    private static int find(AtomicIntegerArray parent, int x)
+    {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x)
+                return x;
+            int grandparent = parent.get(p);
+            if (grandparent != p)
+                parent.compareAndSet(x, p, grandparent);
+            x = grandparent;
+        }
+    }
+
+    private static void union(AtomicIntegerArray parent, int x, int y)
+    {
+        while (true) {
+            x = find(parent, x);
+            y = find(parent, y);
+            if (x == y)
+                return;
+            if (x < y) {
+                int swap = x;
+                x = y;
+                y = swap;
+            }
+            // link the root with the larger index
+            if (parent.compareAndSet(x, x, y))
+                return;
+        }
+    }
+
+    // one phase over the cells in [lo, hi)
+    private static class Pass
+        extends RecursiveAction
+    {
+        private final int phase;
+        private final Adjacency adjacency;
+        private final AtomicIntegerArray parent;
+        private final int[] label;
+        private final AtomicInteger roots;
+        private final int lo, hi;
+
+        Pass(int phase, Adjacency adjacency, AtomicIntegerArray parent,
+             int[] label, AtomicInteger roots, int lo, int hi)
+        {
+            this.phase = phase;
+            this.adjacency = adjacency;
+            this.parent = parent;
+            this.label = label;
+            this.roots = roots;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (hi - lo > CHUNK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Pass(phase, adjacency, parent, label, roots, lo, mid),
+                          new Pass(phase, adjacency, parent, label, roots, mid, hi));
+            } else if (phase == INIT) {
+                // every cell is its own root until united
+                for (int index = lo; index < hi; index++)
+                    parent.set(index, index);
+            } else if (phase == UNITE) {
+                for (int index = lo; index < hi; index++) {
+                    if (!adjacency.isAccessible(index))
+                        continue;
+                    int south = adjacency.neighbor(index, Direction.SOUTH);
+                    if (south >= 0)
+                        union(parent, index, south);
+                    int east = adjacency.neighbor(index, Direction.EAST);
+                    if (east >= 0)
+                        union(parent, index, east);
+                }
+            } else {
+                int count = 0;
+                for (int index = lo; index < hi; index++) {
+                    if (!adjacency.isAccessible(index)) {
+                        label[index] = -1;
+                    } else {
+                        label[index] = find(parent, index);
+                        if (label[index] == index)
+                            count += 1;
+                    }
+                }
+                roots.addAndGet(count);
+            }
+        }
+    }
+}
@@ -1,10 +1,46 @@
 package amazed.maze;
 
+/**
+ * <code>Direction</code> enumerates the four directions in which a
+ * node of a maze may have a neighbor.
+ *
+ * @author  Carlo A. Furia
+ */
 
-enum Direction
+public enum Direction
 {
     NORTH,
     SOUTH,
     WEST,
     EAST;
+
+    /**
+     * Tests whether this direction is horizontal.
+     *
+     * @return   <code>true</code> if this is <code>WEST</code> or
+     *           <code>EAST</code>; <code>false</code> otherwise
+     */
+    public boolean isHorizontal()
+    {
+        return this == WEST || this == EAST;
+    }
+
+    /**
+     * Returns the opposite of this direction.
+     *
+     * @return   the direction opposite to this direction
+     */
+    public Direction reverse()
+    {
+        switch (this) {
+        case NORTH:
+            return SOUTH;
+        case SOUTH:
+            return NORTH;
+        case WEST:
+            return EAST;
+        default:
+            return WEST;
+        }
+    }
 }
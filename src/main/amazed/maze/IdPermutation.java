@@ -0,0 +1,105 @@
+package amazed.maze;
+
+
+// seeded pseudo-random bijection between the row-major indexes of the
+// cells on a board and their unique ids in [-numCells, numCells),
+// computed on demand without any tables
+//
+// slots in [0, 2*numCells) are permuted by a Feistel network over
+// [0, m*m), with m the smallest integer such that m*m >= 2*numCells:
+// a slot is split into its quotient and remainder by m, and every
+// round adds a keyed hash of one half to the other, modulo m; `cycle
+// walking' applies the network again while the result is outside
+// [0, 2*numCells), which is rare, since m*m exceeds 2*numCells by at
+// most 2*m; the cell at index has id permute(index) - numCells, and
+// ids whose slot is not the image of an index are unused; the round
+// keys derive from the seed, so that equal seeds give equal ids
+class IdPermutation
+{
+    private static final int ROUNDS = 4;
+
+    private final int numCells;
+    // 2*numCells, the number of slots
+    private final long slots;
+    // the Feistel network permutes pairs in [0, m) x [0, m)
+    private final int m;
+    private final int[] keys = new int[ROUNDS];
+
+    IdPermutation(int numCells, long seed)
+    {
+        this.numCells = numCells;
+        this.slots = 2L*numCells;
+        int root = (int) Math.sqrt((double) slots);
+        while ((long) root*root < slots)
+            root += 1;
+        m = Math.max(root, 1);
+        // round keys from the SplitMix64 sequence of seed
+        long state = seed;
+        for (int k = 0; k < ROUNDS; k++) {
+            state += 0x9e3779b97f4a7c15L;
+            long z = state;
+            z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+            z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+            keys[k] = (int) (z ^ (z >>> 31));
+        }
+    }
+
+    // id of the cell at row-major `index'
+    int id(int index)
+    {
+        long slot = index;
+        do {
+            slot = encrypt(slot);
+        } while (slot >= slots);
+        return (int) (slot - numCells);
+    }
+
+    // row-major index of the cell with `id', or -1 if no cell has `id'
+    int index(int id)
+    {
+        long slot = (long) id + numCells;
+        if (slot < 0 || slot >= slots)
+            return -1;
+        do {
+            slot = decrypt(slot);
+        } while (slot >= slots);
+        return (slot < numCells) ? (int) slot : -1;
+    }
+
+    private long encrypt(long slot)
+    {
+        int left = (int) (slot / m), right = (int) (slot - (long) left*m);
+        for (int k = 0; k < ROUNDS; k++) {
+            int next = left + round(right, keys[k]);
+            if (next >= m)
+                next -= m;
+            left = right;
+            right = next;
+        }
+        return (long) left*m + right;
+    }
+
+    private long decrypt(long slot)
+    {
+        int left = (int) (slot / m), right = (int) (slot - (long) left*m);
+        for (int k = ROUNDS - 1; k >= 0; k--) {
+            int previous = right - round(left, keys[k]);
+            if (previous < 0)
+                previous += m;
+            right = left;
+            left = previous;
+        }
+        return (long) left*m + right;
+    }
+
+    // round function: a keyed integer hash, scaled to [0, m) by
+    // multiplication rather than division
+    private int round(int value, int key)
+    {
+        int x = (value ^ key) * 0x9e3779b1;
+        x ^= x >>> 16;
+        x *= 0x85ebca6b;
+        x ^= x >>> 13;
+        return (int) (((x & 0xffffffffL) * m) >>> 32);
+    }
+}
@@ -0,0 +1,53 @@
+package amazed.maze;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+
+/**
+ * <code>MapConverter</code> converts a map file to the binary map
+ * format.
+ * <p>
+ * A binary map stores the size of the board and one byte per cell,
+ * so that loading it takes no parsing: the file is memory-mapped and
+ * its tiles are copied straight into the board. Any map file can be passed wherever a map is expected,
+ * since binary maps are recognized by their first bytes whatever their
+ * name; by convention, their extension is <code>.bmap</code>.
+ */
+
+public class MapConverter
+{
+    private static void printUsageAndExit()
+    {
+        String className = MethodHandles.lookup().lookupClass().getName();
+        System.out.println("usage: java " + className + " MAP BINARY_MAP\n"
+                           + "\n"
+                           + " MAP         filename with map file (text or binary)\n"
+                           + " BINARY_MAP  filename where the binary map is written");
+        System.exit(0);
+    }
+
+    /**
+     * Reads the map in the file named by the first argument, and
+     * writes it in binary map format to the file named by the second
+     * argument.
+     *
+     * @param args   the names of the input and output map files
+     */
+    public static void main(String[] args)
+    {
+        if (args.length != 2)
+            printUsageAndExit();
+        long start = System.currentTimeMillis();
+        Board board = new Board(args[0]);
+        long read = System.currentTimeMillis();
+        try {
+            board.writeBinaryMap(args[1]);
+        } catch (IOException e) {
+            System.err.println("Error: cannot write map file " + args[1]);
+            System.exit(1);
+        }
+        long written = System.currentTimeMillis();
+        System.out.println("Reading time: " + (read - start) + " ms, "
+                           + "writing time: " + (written - read) + " ms");
+    }
+}
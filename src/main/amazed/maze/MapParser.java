@@ -0,0 +1,196 @@
+package amazed.maze;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+
+// single-pass parser of maps in text format, producing the tile of
+// every cell as a byte (its Tile ordinal) in row-major order
+//
+// the input is scanned as raw bytes, one buffer at a time, and every
+// byte is classified through a lookup table, with no intermediate
+// strings and no regular expressions; the result is the same as
+// reading the map line by line, removing whitespace, and then:
+// ignoring the rest of a line from `@' on; taking a line that reads
+// `$ROWS,COLS' as the header; and taking every other character as the
+// next cell, with unrecognized symbols as empty cells; a row continues
+// on the next line until it has COLS cells, and cells beyond the
+// declared rows and columns are ignored
+class MapParser
+{
+    // bytes read from the input at a time
+    private static final int BUFFER = 1 << 16;
+
+    // classes of the bytes that are not tiles; tiles are classified
+    // by their (nonnegative) Tile ordinal
+    static final byte SPACE = -1;
+    static final byte NEWLINE = -2;
+    static final byte COMMENT = -3;
+    static final byte HEADER = -4;
+    static final byte UNKNOWN = -5;
+    // non-initial byte of a multibyte UTF-8 character
+    static final byte CONTINUATION = -6;
+
+    // CLASS[b] is the class of byte b, as an unsigned value
+    static final byte[] CLASS = new byte[256];
+
+    static {
+        Arrays.fill(CLASS, UNKNOWN);
+        for (int b = 0x80; b < 0xc0; b++)
+            CLASS[b] = CONTINUATION;
+        // the whitespace characters of regular expression \s
+        for (char ch: new char[] { ' ', '\t', '\u000b', '\f' })
+            CLASS[ch] = SPACE;
+        CLASS['\n'] = NEWLINE;
+        CLASS['\r'] = NEWLINE;
+        CLASS['@'] = COMMENT;
+        CLASS['$'] = HEADER;
+        for (Tile tile: new Tile[] { Tile.EMPTY, Tile.SOLID, Tile.BRICK, Tile.HEART })
+            CLASS[tile.getChar()] = (byte) tile.ordinal();
+    }
+
+    // what the rest of the current line is
+    private static final int CELLS = 0;
+    private static final int IGNORED = 1;
+    private static final int HEADER_ROWS = 2;
+    private static final int HEADER_COLS = 3;
+    private static final int HEADER_INVALID = 4;
+
+    private int nRows;
+    private int nCols;
+    private byte[] tiles = new byte[0];
+
+    // position of the next cell
+    private int row;
+    private int col;
+
+    private int state = CELLS;
+    // no character other than whitespace yet on the current line
+    private boolean lineStart = true;
+    // header fields being parsed, and whether they have any digits
+    private long headerRows;
+    private long headerCols;
+    private boolean headerDigits;
+
+    int getRows()
+    {
+        return nRows;
+    }
+
+    int getCols()
+    {
+        return nCols;
+    }
+
+    // tiles[row*nCols + col] is the Tile ordinal of the cell at row, col
+    byte[] getTiles()
+    {
+        return tiles;
+    }
+
+    // parse the whole of `in', which is not closed
+    void parse(InputStream in)
+    throws IOException
+    {
+        byte[] buffer = new byte[BUFFER];
+        int length;
+        while ((length = in.read(buffer)) != -1)
+            parse(buffer, 0, length);
+        endLine();
+    }
+
+    // parse the bytes in buffer[from, to), continuing from where the
+    // previous call left off
+    void parse(byte[] buffer, int from, int to)
+    throws IOException
+    {
+        for (int i = from; i < to; i++) {
+            int b = buffer[i] & 0xff;
+            int kind = CLASS[b];
+            if (kind == NEWLINE) {
+                endLine();
+                continue;
+            }
+            if (kind == SPACE || kind == CONTINUATION)
+                continue;
+            switch (state) {
+            case CELLS:
+                if (kind == COMMENT) {
+                    state = IGNORED;
+                } else if (kind == HEADER) {
+                    // only a line that begins with `$' can be a header
+                    state = lineStart ? HEADER_ROWS : IGNORED;
+                    headerRows = headerCols = 0;
+                    headerDigits = false;
+                } else {
+                    if (kind < 0) {
+                        System.out.println("Unrecognized symbol " +
+                                           symbol(buffer, i, to) + " on " +
+                                           "row " + row + " column " + col);
+                        System.out.println("... using empty cell instead.");
+                        kind = Tile.EMPTY.ordinal();
+                    }
+                    // Ignore rows and columns beyond the declared ones
+                    if (row < nRows && col < nCols) {
+                        tiles[row*nCols + col] = (byte) kind;
+                        col += 1;
+                    }
+                }
+                break;
+            case HEADER_ROWS:
+            case HEADER_COLS:
+                if ('0' <= b && b <= '9') {
+                    if (state == HEADER_ROWS)
+                        headerRows = Math.min(10*headerRows + (b - '0'), Integer.MAX_VALUE + 1L);
+                    else
+                        headerCols = Math.min(10*headerCols + (b - '0'), Integer.MAX_VALUE + 1L);
+                    headerDigits = true;
+                } else if (b == ',' && state == HEADER_ROWS && headerDigits) {
+                    state = HEADER_COLS;
+                    headerDigits = false;
+                } else {
+                    state = HEADER_INVALID;
+                }
+                break;
+            default:
+                break;
+            }
+            lineStart = false;
+        }
+    }
+
+    // end the current line, also at the end of the input
+    void endLine()
+    throws IOException
+    {
+        if (state == HEADER_COLS && headerDigits)
+            allocate(headerRows, headerCols);
+        if (nCols > 0 && col == nCols) {
+            row += 1;
+            col = 0;
+        }
+        state = CELLS;
+        lineStart = true;
+    }
+
+    private void allocate(long rows, long cols)
+    throws IOException
+    {
+        if (rows > Integer.MAX_VALUE || cols > Integer.MAX_VALUE
+            || rows*cols > Integer.MAX_VALUE)
+            throw new IOException("map too large: " + rows + " by " + cols);
+        nRows = (int) rows;
+        nCols = (int) cols;
+        tiles = new byte[nRows*nCols];
+    }
+
+    // the character whose encoding begins at buffer[i], as a string
+    static String symbol(byte[] buffer, int i, int to)
+    {
+        int lead = buffer[i] & 0xff;
+        int length = (lead >= 0xf0) ? 4 : (lead >= 0xe0) ? 3 : (lead >= 0xc0) ? 2 : 1;
+        return new String(buffer, i, Math.min(length, to - i), StandardCharsets.UTF_8);
+    }
+}
@@ -17,7 +17,10 @@ import java.util.Set;
  * <em>cell</em>, which can be thought as a room in the maze.  Every
  * node has an identifier &mdash; an integer whose value is unique
  * within the maze.  Node identifiers are generated randomly at every
- * object creation, and thus they are not persistent or deterministic.
+ * object creation, and thus they are not persistent or deterministic,
+ * unless system property <code>amazed.seed</code> is set: mazes read
+ * from the same map with the same seed have the same identifiers,
+ * so that benchmark runs can be reproduced.
  * <p>
  * Exploration of a maze begins at the start node, whose identifier
  * is returned by method <code>start</code>.  Given the identifier
@@ -25,6 +28,16 @@ import java.util.Set;
  * identifiers of all nodes adjacent to it.  Method
  * <code>hasGoal</code> determines if a given node contains a goal.
  * <p>
+ * Besides its identifier, every node also has an <em>index</em>
+ * &mdash; an integer in the dense range from <code>0</code> (included)
+ * to <code>size()</code> (excluded). Methods <code>indexOf</code> and
+ * <code>idAt</code> convert between identifiers and indexes in
+ * constant time. Indexes are meant to key array-based data structures
+ * (bitsets, predecessor tables, and so on); methods whose name ends
+ * in <code>At</code> take indexes rather than identifiers, so that a
+ * search can run entirely on indexes and convert back to identifiers
+ * only when it returns a path.
+ * <p>
  * Finally, methods <code>spawn</code> and <code>move</code> animate
  * icons of players that move around the maze in its graphical
  * representation.
@@ -34,6 +47,12 @@ import java.util.Set;
 
 public class Maze
 {
+    /**
+     * The maximum number of neighbors of any node, and hence the
+     * minimum length of buffers passed to {@link #neighbors(int, int[])}.
+     */
+    public static final int MAX_NEIGHBORS = 4;
+
     private Board board;
 
     Board getBoard()
@@ -81,7 +100,7 @@ public class Maze
      */
     public int start()
     {
-        return board.getCell(0, 0).getId();
+        return board.getId(0);
     }
 
     /**
@@ -96,16 +115,47 @@ public class Maze
      */
     public Set<Integer> neighbors(int id)
     {
-        Set<Integer> neighbors = new HashSet<>(4);
-        Position position = board.getPosition(id);
-        for (Direction direction: Direction.values()) {
-            Position newPosition = board.move(position, direction);
-            if (newPosition != null)
-                neighbors.add(board.getCell(newPosition).getId());
-        }
+        int[] buffer = new int[MAX_NEIGHBORS];
+        int count = board.neighbors(id, buffer);
+        Set<Integer> neighbors = new HashSet<>(MAX_NEIGHBORS);
+        for (int k = 0; k < count; k++)
+            neighbors.add(buffer[k]);
         return neighbors;
     }
 
+    /**
+     * Stores in <code>buffer</code> the identifiers of all nodes
+     * directly adjacent to a given node, and accessible from it, and
+     * returns how many they are. This is the same neighborhood
+     * returned by {@link #neighbors(int)}, but computed without
+     * allocating any object; thus, it is the method of choice in the
+     * inner loop of a search.
+     *
+     * @param id       the identifier of a node in the maze
+     * @param buffer   an array of length at least
+     *                 {@link #MAX_NEIGHBORS}; its first elements are
+     *                 overwritten with the identifiers of the neighbors
+     * @return         the number <code>n</code> of neighbors of
+     *                 <code>id</code>, stored in
+     *                 <code>buffer[0..n-1]</code>
+     */
+    public int neighbors(int id, int[] buffer)
+    {
+        return board.neighbors(id, buffer);
+    }
+
+    /**
+     * Returns the number of nodes directly adjacent to a given node,
+     * and accessible from it.
+     *
+     * @param id   the identifier of a node in the maze
+     * @return     the size of <code>id</code>'s neighborhood, from zero to four
+     */
+    public int degree(int id)
+    {
+        return board.degree(id);
+    }
+
     /**
      * Tests whether a given node contains a goal.
      *
@@ -115,7 +165,292 @@ public class Maze
      */
     public boolean hasGoal(int id)
     {
-        return board.getCell(id).isHeart();
+        return board.isGoal(board.getIndex(id));
+    }
+
+    /**
+     * Returns the Manhattan distance between two nodes, that is the
+     * number of steps between them in a maze without walls. This is a
+     * lower bound on the length of any path between the two nodes,
+     * and hence an admissible and consistent heuristic for informed
+     * searches.
+     *
+     * @param id        the identifier of a node in the maze
+     * @param otherId   the identifier of another node in the maze
+     * @return          the Manhattan distance between nodes
+     *                  <code>id</code> and <code>otherId</code>
+     */
+    public int distance(int id, int otherId)
+    {
+        return board.distanceAt(board.getIndex(id), board.getIndex(otherId));
+    }
+
+    /**
+     * Returns the Manhattan distance between the nodes at two given
+     * indexes; this is the index-based counterpart of
+     * {@link #distance(int, int)}.
+     *
+     * @param index        the index of a node in the maze
+     * @param otherIndex   the index of another node in the maze
+     * @return             the Manhattan distance between the nodes at
+     *                     <code>index</code> and <code>otherIndex</code>
+     */
+    public int distanceAt(int index, int otherIndex)
+    {
+        return board.distanceAt(index, otherIndex);
+    }
+
+    /**
+     * Returns the identifiers of all nodes that contain a goal.
+     * Together with <code>start</code>, this makes it possible to
+     * search the maze backwards, from the goals to the start node.
+     *
+     * @return   a fresh array with the identifiers of all goal nodes,
+     *           in no particular order; an empty array if the maze
+     *           has no goals
+     */
+    public int[] goals()
+    {
+        int[] goals = board.getGoals();
+        for (int k = 0; k < goals.length; k++)
+            goals[k] = board.getId(goals[k]);
+        return goals;
+    }
+
+    /**
+     * Returns the number of nodes in the maze, which is also the
+     * upper bound (excluded) of all node indexes.
+     *
+     * @return   the number of nodes in the maze
+     */
+    public int size()
+    {
+        return board.getNumCells();
+    }
+
+    /**
+     * Returns the number of rows of the maze's grid. Indexes are
+     * assigned to nodes row by row, so that the node at row
+     * <code>r</code> and column <code>c</code> has index
+     * <code>r * columns() + c</code>.
+     *
+     * @return   the number of rows of the maze
+     */
+    public int rows()
+    {
+        return board.getRows();
+    }
+
+    /**
+     * Returns the number of columns of the maze's grid.
+     *
+     * @return   the number of columns of the maze
+     * @see      #rows()
+     */
+    public int columns()
+    {
+        return board.getCols();
+    }
+
+    /**
+     * Returns the index of a given node.
+     *
+     * @param id   the identifier of a node in the maze
+     * @return     the index of the node with identifier <code>id</code>,
+     *             in the range <code>[0, size())</code>;
+     *             <code>-1</code> if no node has identifier <code>id</code>
+     */
+    public int indexOf(int id)
+    {
+        return board.getIndex(id);
+    }
+
+    /**
+     * Returns the identifier of the node at a given index.
+     *
+     * @param index   the index of a node in the maze
+     * @return        the identifier of the node at <code>index</code>
+     */
+    public int idAt(int index)
+    {
+        return board.getId(index);
+    }
+
+    /**
+     * Stores in <code>buffer</code> the indexes of all nodes directly
+     * adjacent to the node at a given index, and accessible from it,
+     * and returns how many they are. This is the index-based
+     * counterpart of {@link #neighbors(int, int[])}.
+     *
+     * @param index    the index of a node in the maze
+     * @param buffer   an array of length at least {@link #MAX_NEIGHBORS}
+     * @return         the number <code>n</code> of neighbors of the node
+     *                 at <code>index</code>, whose indexes are stored in
+     *                 <code>buffer[0..n-1]</code>
+     */
+    public int neighborsAt(int index, int[] buffer)
+    {
+        return board.neighborsAt(index, buffer);
+    }
+
+    /**
+     * Returns the index of the node directly adjacent to the node at
+     * a given index in a given direction, if it is accessible. Nodes
+     * reached by repeatedly moving in the same direction lie on a
+     * straight line of the maze's grid.
+     *
+     * @param index       the index of a node in the maze
+     * @param direction   the direction in which to move
+     * @return            the index of the neighbor of the node at
+     *                    <code>index</code> in <code>direction</code>;
+     *                    <code>-1</code> if there is no such accessible node
+     */
+    public int neighborAt(int index, Direction direction)
+    {
+        return board.neighborAt(index, direction);
+    }
+
+    /**
+     * Returns the number of nodes directly adjacent to the node at a
+     * given index, and accessible from it.
+     *
+     * @param index   the index of a node in the maze
+     * @return        the size of the node's neighborhood, from zero to four
+     */
+    public int degreeAt(int index)
+    {
+        return board.degreeAt(index);
+    }
+
+    /**
+     * Tests whether the node at a given index is accessible, that is
+     * whether it belongs to the neighborhood of its neighbors. Nodes
+     * that are not accessible (walls) are never reached by a search.
+     *
+     * @param index   the index of a node in the maze
+     * @return        <code>true</code> if the node at <code>index</code> is accessible;
+     *                <code>false</code> otherwise
+     */
+    public boolean isAccessibleAt(int index)
+    {
+        return board.isAccessibleAt(index);
+    }
+
+    /**
+     * Tests whether the node at a given index contains a goal.
+     *
+     * @param index   the index of a node in the maze
+     * @return        <code>true</code> if the node at <code>index</code> is a goal;
+     *                <code>false</code> otherwise
+     */
+    public boolean hasGoalAt(int index)
+    {
+        return board.isGoal(index);
+    }
+
+    /**
+     * Tests whether some goal can be reached from a given node. The
+     * connected components of the maze are computed once, when the
+     * maze is loaded, so that this takes constant time; if it returns
+     * <code>false</code>, no search from the node can succeed. A
+     * search can step out of a node that is not accessible, such as a
+     * start node on a wall, into its accessible neighbors; thus, for
+     * such a node, this tests whether a goal can be reached from any
+     * of its neighbors.
+     *
+     * @param id   the identifier of a node in the maze
+     * @return     <code>true</code> if a path connects the node with
+     *             identifier <code>id</code> to a goal;
+     *             <code>false</code> otherwise
+     */
+    public boolean reachesGoal(int id)
+    {
+        return board.reachesGoalAt(board.getIndex(id));
+    }
+
+    /**
+     * Tests whether some goal can be reached from the node at a given
+     * index; this is the index-based counterpart of
+     * {@link #reachesGoal(int)}.
+     *
+     * @param index   the index of a node in the maze
+     * @return        <code>true</code> if a path connects the node at
+     *                <code>index</code> to a goal;
+     *                <code>false</code> otherwise
+     */
+    public boolean reachesGoalAt(int index)
+    {
+        return board.reachesGoalAt(index);
+    }
+
+    /**
+     * Tests whether two nodes are connected, that is whether a path
+     * goes from one to the other, in constant time.
+     *
+     * @param id        the identifier of a node in the maze
+     * @param otherId   the identifier of another node in the maze
+     * @return          <code>true</code> if nodes <code>id</code> and
+     *                  <code>otherId</code> are both accessible and
+     *                  connected; <code>false</code> otherwise
+     */
+    public boolean isConnected(int id, int otherId)
+    {
+        return board.isConnectedAt(board.getIndex(id), board.getIndex(otherId));
+    }
+
+    /**
+     * Tests whether the nodes at two given indexes are connected;
+     * this is the index-based counterpart of
+     * {@link #isConnected(int, int)}.
+     *
+     * @param index        the index of a node in the maze
+     * @param otherIndex   the index of another node in the maze
+     * @return             <code>true</code> if the nodes at
+     *                     <code>index</code> and <code>otherIndex</code>
+     *                     are both accessible and connected;
+     *                     <code>false</code> otherwise
+     */
+    public boolean isConnectedAt(int index, int otherIndex)
+    {
+        return board.isConnectedAt(index, otherIndex);
+    }
+
+    /**
+     * Returns the connected component of the node at a given index.
+     * Two accessible nodes are connected if and only if they are in
+     * the same component.
+     *
+     * @param index   the index of a node in the maze
+     * @return        a label, in the range <code>[0, size())</code>,
+     *                shared by all nodes connected to the node at
+     *                <code>index</code>; <code>-1</code> if the node is
+     *                not accessible
+     */
+    public int componentAt(int index)
+    {
+        return board.componentAt(index);
+    }
+
+    /**
+     * Returns the number of connected components of the maze.
+     *
+     * @return   the number of connected components of accessible nodes
+     */
+    public int components()
+    {
+        return board.numComponents();
+    }
+
+    /**
+     * Returns the time it took to load the maze from its map file,
+     * phase by phase: parsing the map, and building the board and its
+     * precomputed structures.
+     *
+     * @return   the duration in milliseconds of every loading phase
+     */
+    public String loadTimes()
+    {
+        return board.getLoadTimes();
     }
 
     /**
@@ -0,0 +1,334 @@
+package amazed.maze;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveAction;
+
+
+// parser of maps in text format that parses chunks of the file in
+// parallel, producing the same tiles as MapParser
+//
+// parsing runs in phases, each timed: the header is parsed
+// sequentially; the rest of the file is split into chunks of about
+// CHUNK bytes, each beginning at the start of a line; a tree of
+// fork/join tasks counts the rows in every chunk, so that the row
+// where every chunk begins is known; and a second tree of tasks
+// parses every memory-mapped chunk directly into the tiles, from its
+// first row on
+//
+// counting assumes that every line holds either no cells or at least
+// as many cells as the board has columns, as in any map where a line
+// is a row; if some line holds fewer, or if some line after the
+// header begins with `$', a row may span several lines, and the
+// rest of the file is parsed sequentially by MapParser instead, as
+// are files with fewer than two chunks after the header
+class ParallelMapParser
+{
+    // bytes of the file in a chunk, up to the end of a line
+    private static final int CHUNK = 1 << 22;
+    // bytes read at a time while parsing the header and splitting
+    private static final int BUFFER = 1 << 16;
+
+    // phases of the parallel parsing, each over all chunks
+    private static final int COUNT = 0;
+    private static final int FILL = 1;
+
+    private final FileChannel channel;
+    private final MapParser header = new MapParser();
+    private int nRows;
+    private int nCols;
+    private byte[] tiles;
+
+    // chunk k spans bytes [start[k], start[k+1]) of the file, and
+    // rows[k] rows, the first of which is firstRow[k]
+    private long[] start;
+    private int[] rows;
+    private int[] firstRow;
+    // chunk k has some line that a row spans only in part
+    private boolean[] irregular;
+
+    private final StringBuilder times = new StringBuilder();
+    private long lap;
+
+    ParallelMapParser(String mapFile)
+    throws IOException
+    {
+        lap = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(Paths.get(mapFile), StandardOpenOption.READ)) {
+            this.channel = channel;
+            long body = parseHeader();
+            lap("header");
+            if (channel.size() - body < 2L*CHUNK || !split(body)) {
+                parseSequentially(body);
+                lap("sequential");
+                return;
+            }
+            lap("split");
+            invoke(COUNT);
+            lap("count");
+            boolean regular = true;
+            firstRow = new int[rows.length];
+            for (int k = 0; k < rows.length; k++) {
+                regular &= !irregular[k];
+                if (k > 0)
+                    firstRow[k] = (int) Math.min((long) firstRow[k - 1] + rows[k - 1], nRows);
+            }
+            if (!regular) {
+                parseSequentially(body);
+                lap("sequential");
+                return;
+            }
+            invoke(FILL);
+            lap("fill");
+        }
+    }
+
+    private void invoke(int phase)
+    throws IOException
+    {
+        try {
+            new Pass(this, phase, 0, rows.length).invoke();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    int getRows()
+    {
+        return nRows;
+    }
+
+    int getCols()
+    {
+        return nCols;
+    }
+
+    // tiles[row*nCols + col] is the Tile ordinal of the cell at row, col
+    byte[] getTiles()
+    {
+        return tiles;
+    }
+
+    // duration of every phase of the parsing
+    String getTimes()
+    {
+        return times.toString();
+    }
+
+    private void lap(String phase)
+    {
+        long now = System.nanoTime();
+        if (times.length() > 0)
+            times.append(", ");
+        times.append(phase).append(' ').append((now - lap) / 1_000_000).append(" ms");
+        lap = now;
+    }
+
+    // parse lines until the header, and return the position of the
+    // byte after it, or the size of the file if there is no header
+    private long parseHeader()
+    throws IOException
+    {
+        byte[] buffer = new byte[BUFFER];
+        long position = 0;
+        int length;
+        while ((length = channel.read(ByteBuffer.wrap(buffer), position)) > 0) {
+            int from = 0;
+            for (int i = 0; i < length; i++) {
+                if (MapParser.CLASS[buffer[i] & 0xff] == MapParser.NEWLINE) {
+                    header.parse(buffer, from, i + 1);
+                    from = i + 1;
+                    if (header.getCols() > 0) {
+                        nRows = header.getRows();
+                        nCols = header.getCols();
+                        tiles = header.getTiles();
+                        return position + i + 1;
+                    }
+                }
+            }
+            header.parse(buffer, from, length);
+            position += length;
+        }
+        header.endLine();
+        return position;
+    }
+
+    // split bytes from `body' on into chunks, each but the first
+    // beginning after the end of a line; false if some chunk would be
+    // too large to be mapped
+    private boolean split(long body)
+    throws IOException
+    {
+        long size = channel.size();
+        int count = (int) Math.min((size - body) / CHUNK, Integer.MAX_VALUE - 1);
+        long[] bounds = new long[count + 1];
+        byte[] buffer = new byte[BUFFER];
+        int chunks = 0;
+        bounds[chunks++] = body;
+        for (int k = 1; k < count; k++) {
+            long position = Math.max(body + (long) k*CHUNK, bounds[chunks - 1]);
+            long end = lineEnd(position, buffer);
+            if (end < size && end > bounds[chunks - 1])
+                bounds[chunks++] = end;
+        }
+        start = new long[chunks + 1];
+        System.arraycopy(bounds, 0, start, 0, chunks);
+        start[chunks] = size;
+        for (int k = 0; k < chunks; k++) {
+            if (start[k + 1] - start[k] > Integer.MAX_VALUE)
+                return false;
+        }
+        rows = new int[chunks];
+        irregular = new boolean[chunks];
+        return true;
+    }
+
+    // position of the byte after the first line end at or after
+    // `position', or the size of the file if there is none
+    private long lineEnd(long position, byte[] buffer)
+    throws IOException
+    {
+        int length;
+        while ((length = channel.read(ByteBuffer.wrap(buffer), position)) > 0) {
+            for (int i = 0; i < length; i++) {
+                if (MapParser.CLASS[buffer[i] & 0xff] == MapParser.NEWLINE)
+                    return position + i + 1;
+            }
+            position += length;
+        }
+        return position;
+    }
+
+    // parse the rest of the file, from `body' on, sequentially
+    private void parseSequentially(long body)
+    throws IOException
+    {
+        header.parse(Channels.newInputStream(channel.position(body)));
+        nRows = header.getRows();
+        nCols = header.getCols();
+        tiles = header.getTiles();
+    }
+
+    // count the rows of chunk k, and find if it is irregular
+    private void count(int k)
+    throws IOException
+    {
+        MappedByteBuffer chunk = map(k);
+        int limit = chunk.limit();
+        int count = 0, cells = 0;
+        boolean comment = false;
+        for (int i = 0; i < limit; i++) {
+            int kind = MapParser.CLASS[chunk.get(i) & 0xff];
+            if (kind == MapParser.NEWLINE) {
+                if (cells >= nCols)
+                    count += 1;
+                else if (cells > 0)
+                    irregular[k] = true;
+                cells = 0;
+                comment = false;
+            } else if (comment || kind == MapParser.SPACE || kind == MapParser.CONTINUATION) {
+                continue;
+            } else if (kind == MapParser.COMMENT) {
+                comment = true;
+            } else if (kind == MapParser.HEADER) {
+                irregular[k] = true;
+                comment = true;
+            } else {
+                cells += 1;
+            }
+        }
+        // the last chunk may not end with a line end
+        if (cells >= nCols)
+            count += 1;
+        else if (cells > 0)
+            irregular[k] = true;
+        rows[k] = count;
+    }
+
+    // parse the cells of chunk k into the tiles
+    private void fill(int k)
+    throws IOException
+    {
+        MappedByteBuffer chunk = map(k);
+        int limit = chunk.limit();
+        int row = firstRow[k], col = 0;
+        boolean comment = false;
+        for (int i = 0; i < limit; i++) {
+            int kind = MapParser.CLASS[chunk.get(i) & 0xff];
+            if (kind == MapParser.NEWLINE) {
+                if (col == nCols) {
+                    row += 1;
+                    col = 0;
+                }
+                comment = false;
+            } else if (comment || kind == MapParser.SPACE || kind == MapParser.CONTINUATION) {
+                continue;
+            } else if (kind == MapParser.COMMENT) {
+                comment = true;
+            } else {
+                if (kind < 0) {
+                    byte[] symbol = new byte[Math.min(4, limit - i)];
+                    chunk.get(i, symbol);
+                    System.out.println("Unrecognized symbol " +
+                                       MapParser.symbol(symbol, 0, symbol.length) + " on " +
+                                       "row " + row + " column " + col);
+                    System.out.println("... using empty cell instead.");
+                    kind = Tile.EMPTY.ordinal();
+                }
+                // Ignore rows and columns beyond the declared ones
+                if (row < nRows && col < nCols) {
+                    tiles[row*nCols + col] = (byte) kind;
+                    col += 1;
+                }
+            }
+        }
+    }
+
+    private MappedByteBuffer map(int k)
+    throws IOException
+    {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start[k], start[k + 1] - start[k]);
+    }
+
+    // one phase over the chunks in [lo, hi)
+    private static class Pass
+        extends RecursiveAction
+    {
+        private final ParallelMapParser parser;
+        private final int phase;
+        private final int lo, hi;
+
+        Pass(ParallelMapParser parser, int phase, int lo, int hi)
+        {
+            this.parser = parser;
+            this.phase = phase;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Pass(parser, phase, lo, mid),
+                          new Pass(parser, phase, mid, hi));
+                return;
+            }
+            try {
+                if (phase == COUNT)
+                    parser.count(lo);
+                else
+                    parser.fill(lo);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
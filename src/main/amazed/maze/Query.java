@@ -0,0 +1,271 @@
+package amazed.maze;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.IntPredicate;
+
+/**
+ * <code>Query</code> describes a search in a <code>Maze</code>: the
+ * node where the search starts, and the nodes that count as goals.
+ * <p>
+ * The default query of a maze starts at the maze's start node and
+ * targets the maze's goals (the nodes with a heart), which is what
+ * all solvers search for unless they are given another query. Other
+ * queries may start at any accessible node, and target either a set
+ * of nodes, or all nodes that satisfy a predicate on node
+ * identifiers. Since a query only reads the maze, any number of
+ * queries can be answered on the same maze, also concurrently, each
+ * by its own solver.
+ * <p>
+ * Solvers test goals with method <code>hasGoalAt</code>. Solvers that
+ * need to know all goals in advance, such as those searching
+ * backwards from the goals or estimating distances to them, call
+ * method <code>goals</code>; for a query with a goal predicate, this
+ * tests every node in the maze the first time it is called.
+ */
+
+public final class Query
+{
+    private final Maze maze;
+    private final int start;
+    // exactly one of these is not null, unless the query targets the
+    // maze's goals: goal indexes, or goal predicate on identifiers
+    private final BitSet goalIndexes;
+    private final IntPredicate goal;
+    // goal identifiers, computed when first needed
+    private volatile int[] goals;
+
+    /**
+     * Creates the default query of <code>maze</code>, from its start
+     * node to its goals.
+     *
+     * @param maze   the maze to be searched
+     */
+    public Query(Maze maze)
+    {
+        this(maze, maze.start(), null, null);
+    }
+
+    /**
+     * Creates a query of <code>maze</code> from a given node to the
+     * maze's goals.
+     *
+     * @param maze    the maze to be searched
+     * @param start   the identifier of the node where the search starts
+     * @throws IllegalArgumentException   if <code>start</code> is not
+     *                                    an accessible node of the maze
+     */
+    public Query(Maze maze, int start)
+    {
+        this(maze, checked(maze, start), null, null);
+    }
+
+    /**
+     * Creates a query of <code>maze</code> from a given node to a
+     * given set of nodes.
+     *
+     * @param maze    the maze to be searched
+     * @param start   the identifier of the node where the search starts
+     * @param goals   the identifiers of the goal nodes
+     * @throws IllegalArgumentException   if <code>start</code> or any
+     *                                    of <code>goals</code> is not
+     *                                    an accessible node of the maze
+     */
+    public Query(Maze maze, int start, int[] goals)
+    {
+        this(maze, checked(maze, start), indexes(maze, goals), null);
+    }
+
+    /**
+     * Creates a query of <code>maze</code> from a given node to all
+     * nodes whose identifiers satisfy a given predicate.
+     *
+     * @param maze    the maze to be searched
+     * @param start   the identifier of the node where the search starts
+     * @param goal    the predicate that the identifiers of goal nodes,
+     *                and only those, satisfy; it must be thread-safe
+     *                if the query is searched by a parallel solver
+     * @throws IllegalArgumentException   if <code>start</code> is not
+     *                                    an accessible node of the maze
+     */
+    public Query(Maze maze, int start, IntPredicate goal)
+    {
+        this(maze, checked(maze, start), null, goal);
+    }
+
+    private Query(Maze maze, int start, BitSet goalIndexes, IntPredicate goal)
+    {
+        this.maze = maze;
+        this.start = start;
+        this.goalIndexes = goalIndexes;
+        this.goal = goal;
+    }
+
+    // `id', if it is an accessible node of `maze'
+    private static int checked(Maze maze, int id)
+    {
+        int index = maze.indexOf(id);
+        if (index < 0 || !maze.isAccessibleAt(index))
+            throw new IllegalArgumentException("Not an accessible node: " + id);
+        return id;
+    }
+
+    private static BitSet indexes(Maze maze, int[] goals)
+    {
+        BitSet indexes = new BitSet(maze.size());
+        for (int id: goals)
+            indexes.set(maze.indexOf(checked(maze, id)));
+        return indexes;
+    }
+
+    /**
+     * Returns the maze searched by this query.
+     *
+     * @return   the maze of this query
+     */
+    public Maze maze()
+    {
+        return maze;
+    }
+
+    /**
+     * Returns the identifier of the node where the search starts.
+     *
+     * @return   the identifier of the start node of this query
+     */
+    public int start()
+    {
+        return start;
+    }
+
+    /**
+     * Tests whether this query targets the goals of its maze, so that
+     * structures built once per maze around its goals can answer it.
+     *
+     * @return   <code>true</code> if the goals of this query are
+     *           those of its maze; <code>false</code> otherwise
+     */
+    public boolean hasMazeGoals()
+    {
+        return goalIndexes == null && goal == null;
+    }
+
+    /**
+     * Tests whether a given node is a goal of this query.
+     *
+     * @param id   the identifier of a node in the maze
+     * @return     <code>true</code> if the node with identifier
+     *             <code>id</code> is a goal; <code>false</code> otherwise
+     */
+    public boolean hasGoal(int id)
+    {
+        return hasGoalAt(maze.indexOf(id));
+    }
+
+    /**
+     * Tests whether the node at a given index is a goal of this query.
+     *
+     * @param index   the index of a node in the maze
+     * @return        <code>true</code> if the node at <code>index</code>
+     *                is a goal; <code>false</code> otherwise
+     */
+    public boolean hasGoalAt(int index)
+    {
+        if (goalIndexes != null)
+            return goalIndexes.get(index);
+        if (goal != null)
+            return maze.isAccessibleAt(index) && goal.test(maze.idAt(index));
+        return maze.hasGoalAt(index);
+    }
+
+    /**
+     * Returns the identifiers of all goals of this query.
+     *
+     * @return   a fresh array with the identifiers of all goal nodes,
+     *           each once and in no particular order; an empty array
+     *           if there are no goals
+     */
+    public int[] goals()
+    {
+        if (hasMazeGoals())
+            return maze.goals();
+        int[] result = goals;
+        if (result == null && goalIndexes != null) {
+            // one identifier per goal, even if given more than once
+            result = new int[goalIndexes.cardinality()];
+            int count = 0;
+            for (int index = goalIndexes.nextSetBit(0); index >= 0;
+                 index = goalIndexes.nextSetBit(index + 1))
+                result[count++] = maze.idAt(index);
+            goals = result;
+        } else if (result == null) {
+            result = new int[0];
+            int count = 0;
+            for (int index = 0; index < maze.size(); index++) {
+                if (hasGoalAt(index)) {
+                    if (count == result.length)
+                        result = Arrays.copyOf(result, Math.max(4, 2*count));
+                    result[count++] = maze.idAt(index);
+                }
+            }
+            result = Arrays.copyOf(result, count);
+            goals = result;
+        }
+        return result.clone();
+    }
+
+    /**
+     * Tests whether some goal of this query may be reached from its
+     * start node, in constant time for the default query and in time
+     * linear in the number of goals for queries with a set of goals.
+     * For queries with a goal predicate, the method cannot rule out
+     * any goal, and returns <code>true</code>.
+     *
+     * @return   <code>false</code> if no goal can be reached from the
+     *           start node; <code>true</code> otherwise
+     */
+    public boolean mayReachGoal()
+    {
+        if (hasMazeGoals())
+            return maze.reachesGoal(start);
+        if (goal != null)
+            return true;
+        int startIndex = maze.indexOf(start);
+        for (int index = goalIndexes.nextSetBit(0); index >= 0;
+             index = goalIndexes.nextSetBit(index + 1)) {
+            if (maze.isConnectedAt(startIndex, index))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Tests whether a sequence of node identifiers corresponds to a
+     * connected path from the start node of this query to one of its
+     * goals.
+     *
+     * @param path   a list of identifiers nodes in the maze
+     * @return       <code>true</code> if <code>path</code> begins with the
+     *               start node, follows a connected chain of adjacent
+     *               nodes, and ends with a goal node;
+     *               <code>false</code> otherwise
+     */
+    public boolean isValidPath(List<Integer> path)
+    {
+        if (path.isEmpty())
+            return false;
+        ListIterator<Integer> iter = path.listIterator();
+        int prev = 0, curr = iter.next();
+        if (curr != start)
+            return false;
+        while (iter.hasNext()) {
+            prev = curr;
+            curr = iter.next();
+            if (!maze.neighbors(prev).contains(curr))
+                return false;
+        }
+        return hasGoal(curr);
+    }
+}
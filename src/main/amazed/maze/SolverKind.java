@@ -0,0 +1,117 @@
+package amazed.maze;
+
+/**
+ * <code>SolverKind</code> enumerates the solvers that
+ * <code>Amazed</code> can apply to a maze. Every kind has a short
+ * name, used to select it from the command line.
+ */
+
+public enum SolverKind
+{
+    /**
+     * Single-thread depth-first search with
+     * <code>amazed.solver.SequentialSolver</code>.
+     */
+    SEQUENTIAL("sequential"),
+    /**
+     * Single-thread depth-first search on node indexes with
+     * <code>amazed.solver.DenseSequentialSolver</code>.
+     */
+    DENSE("dense"),
+    /**
+     * Fork/join depth-first search with
+     * <code>amazed.solver.ForkJoinSolver</code>.
+     */
+    PARALLEL("parallel"),
+    /**
+     * Fork/join depth-first search with
+     * <code>amazed.solver.ForkJoinSolver</code> in adaptive mode.
+     */
+    ADAPTIVE("adaptive"),
+    /**
+     * Fork/join breadth-first search for a shortest path with
+     * <code>amazed.solver.ParallelBreadthFirstSolver</code>.
+     */
+    BFS("bfs"),
+    /**
+     * Direction-optimizing fork/join breadth-first search for a
+     * shortest path with
+     * <code>amazed.solver.DirectionOptimizingSolver</code>.
+     */
+    HYBRID_BFS("hybridbfs"),
+    /**
+     * Bidirectional breadth-first search with
+     * <code>amazed.solver.BidirectionalSolver</code>.
+     */
+    BIDIRECTIONAL("bidirectional"),
+    /**
+     * A* search for a shortest path with
+     * <code>amazed.solver.AStarSolver</code>.
+     */
+    ASTAR("astar"),
+    /**
+     * Jump Point Search for a shortest path with
+     * <code>amazed.solver.JumpPointSolver</code>.
+     */
+    JPS("jps"),
+    /**
+     * Fork/join breadth-first search for shortest paths to all goals,
+     * or to the nearest ones, with
+     * <code>amazed.solver.MultiGoalSolver</code>.
+     */
+    MULTIGOAL("multigoal"),
+    /**
+     * Sequential search for a shortest path on the graph of junctions
+     * of the maze, with <code>amazed.solver.JunctionSolver</code>.
+     */
+    JUNCTION("junction"),
+    /**
+     * Parallel dead-end filling followed by a sequential search of
+     * what remains, with <code>amazed.solver.DeadEndSolver</code>.
+     */
+    DEADEND("deadend"),
+    /**
+     * A* search for a shortest path guided by landmark distances, with
+     * <code>amazed.solver.LandmarkSolver</code>.
+     */
+    ALT("alt"),
+    /**
+     * Many breadth-first searches for shortest paths from random nodes
+     * to the goals, answered concurrently by
+     * <code>amazed.solver.QueryEngine</code>.
+     */
+    BATCH("batch");
+
+    private final String name;
+
+    SolverKind(String name)
+    {
+        this.name = name;
+    }
+
+    /**
+     * Returns the short name of this kind of solver.
+     *
+     * @return   the name that selects this kind of solver
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the kind of solver with a given short name.
+     *
+     * @param name   the short name of a kind of solver
+     * @return       the kind of solver called <code>name</code>;
+     *               <code>null</code> if there is no such kind
+     */
+    public static SolverKind fromName(String name)
+    {
+        for (SolverKind kind: values()) {
+            if (kind.name.equals(name))
+                return kind;
+        }
+        return null;
+    }
+}
@@ -37,4 +37,24 @@ public enum Tile
     {
         return text.charValue();
     }
+
+    boolean isAccessible()
+    {
+        return this == EMPTY || this == HEART;
+    }
+
+    boolean isMarkable()
+    {
+        return this == EMPTY || this == HEART;
+    }
+
+    // the tile showing that a path goes through this tile
+    Tile marked()
+    {
+        if (this == HEART)
+            return FOUND;
+        if (this == EMPTY)
+            return MARKED;
+        return this;
+    }
 }
@@ -0,0 +1,229 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <code>AStarSolver</code> implements a solver for <code>Maze</code>
+ * objects using a single-thread A* search, which finds a
+ * <em>shortest</em> path from the start node to a goal while
+ * expanding as few nodes as possible.
+ * <p>
+ * The search is guided by a heuristic estimate of the distance from
+ * every node to the nearest goal; the estimate is the Manhattan
+ * distance (as given by <code>Maze.distanceAt</code>) to the closest
+ * goal among those returned by <code>Query.goals</code>, so that the
+ * search works best with one or few goals. Since the heuristic is
+ * consistent, a node is never expanded twice.
+ * <p>
+ * The open set is an indexed binary heap of node indexes with
+ * primitive keys, ordered by estimated path length and then by
+ * distance from the start node, the farthest first; the closed set
+ * is a bitset. Method <code>statistics</code> reports the number of
+ * expanded nodes, which can be compared with the number of nodes
+ * visited by the other solvers.
+ */
+
+public class AStarSolver
+    extends SequentialSolver
+{
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal.
+     *
+     * @param maze   the maze to be searched
+     */
+    public AStarSolver(Maze maze)
+    {
+        super(maze);
+    }
+
+    /**
+     * Initializes <code>open</code>, <code>closed</code>,
+     * <code>seen</code>, <code>distance</code>, and
+     * <code>predecessorIndex</code> with empty data structures sized
+     * for the maze; the inherited boxed structures are not used.
+     */
+    @Override
+    protected void initStructures()
+    {
+        int size = maze.size();
+        open = new IntMinHeap(size);
+        closed = new BitSet(size);
+        seen = new BitSet(size);
+        distance = new int[size];
+        predecessorIndex = new int[size];
+    }
+
+    /**
+     * Indexes of the nodes reached but not expanded yet, ordered by
+     * estimated length of a path through them.
+     */
+    IntMinHeap open;
+    /**
+     * Indexes of the expanded nodes, whose distance from the start
+     * node is final.
+     */
+    protected BitSet closed;
+    /**
+     * Indexes of the nodes reached so far, open or closed.
+     */
+    protected BitSet seen;
+    /**
+     * The length of the shortest path found so far from the start
+     * node to every node in <code>seen</code>.
+     */
+    protected int[] distance;
+    /**
+     * The predecessor of every node in <code>seen</code> on the
+     * shortest path found so far; <code>-1</code> for the start node.
+     */
+    protected int[] predecessorIndex;
+    /**
+     * The indexes of all goals in the maze.
+     */
+    protected int[] goals;
+    /**
+     * The number of nodes expanded by the search.
+     */
+    protected int expanded;
+
+    @Override
+    public String statistics()
+    {
+        return "Nodes expanded: " + expanded;
+    }
+
+    /**
+     * Returns the heuristic estimate of the distance from a node to
+     * the nearest goal.
+     *
+     * @param index   the index of a node in the maze
+     * @return        a lower bound on the length of any path from the
+     *                node at <code>index</code> to a goal
+     */
+    protected int estimate(int index)
+    {
+        int min = Integer.MAX_VALUE;
+        for (int goal: goals)
+            min = Math.min(min, maze.distanceAt(index, goal));
+        return min;
+    }
+
+    // heap key ordering by f = g + h, then by larger g
+    private static long key(int distance, int estimate)
+    {
+        return ((long) (distance + estimate) << 32) | (Integer.MAX_VALUE - distance);
+    }
+
+    /**
+     * Searches for and returns a shortest path, as a list of node
+     * identifiers, that goes from the start node to a goal node in
+     * the maze. If such a path cannot be found (because there are no
+     * goals, or all goals are unreacheable), the method returns
+     * <code>null</code>.
+     *
+     * @return   the list of node identifiers of a shortest path from the
+     *           start node to a goal node in the maze; <code>null</code>
+     *           if such a path cannot be found
+     */
+    @Override
+    public List<Integer> compute()
+    {
+        goals = query.goals();
+        if (goals.length == 0)
+            return null;
+        for (int k = 0; k < goals.length; k++)
+            goals[k] = maze.indexOf(goals[k]);
+        return aStarSearch();
+    }
+
+    private List<Integer> aStarSearch()
+    {
+        int player = maze.newPlayer(start);
+        int startIndex = maze.indexOf(start);
+        seen.set(startIndex);
+        distance[startIndex] = 0;
+        predecessorIndex[startIndex] = -1;
+        open.insert(startIndex, key(0, estimate(startIndex)));
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            closed.set(current);
+            expanded += 1;
+            maze.move(player, maze.idAt(current));
+            if (query.hasGoalAt(current))
+                return pathTo(current);
+            expand(current);
+        }
+        return null;
+    }
+
+    /**
+     * Relaxes all successors of an expanded node. In A*, the
+     * successors of a node are its neighbors, at distance one.
+     *
+     * @param current   the index of the node being expanded
+     */
+    protected void expand(int current)
+    {
+        int count = maze.neighborsAt(current, neighbors);
+        for (int k = 0; k < count; k++)
+            relax(neighbors[k], current, distance[current] + 1);
+    }
+
+    /**
+     * Records that node <code>index</code> can be reached from node
+     * <code>from</code> with a path of length
+     * <code>newDistance</code>, unless it is closed or already
+     * reached with a path that is no longer.
+     *
+     * @param index         the index of a successor of node <code>from</code>
+     * @param from          the index of the node being expanded
+     * @param newDistance   the length of the path to <code>index</code>
+     *                      through <code>from</code>
+     * @return              <code>true</code> if the path through
+     *                      <code>from</code> is now the best path to
+     *                      <code>index</code>; <code>false</code> otherwise
+     */
+    protected boolean relax(int index, int from, int newDistance)
+    {
+        if (closed.get(index))
+            return false;
+        if (!seen.get(index)) {
+            seen.set(index);
+            distance[index] = newDistance;
+            predecessorIndex[index] = from;
+            open.insert(index, key(newDistance, estimate(index)));
+            return true;
+        }
+        if (newDistance < distance[index]) {
+            distance[index] = newDistance;
+            predecessorIndex[index] = from;
+            open.decrease(index, key(newDistance, estimate(index)));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the path, as a list of node identifiers, that goes
+     * from the start node to a given node following the inverse of
+     * <code>predecessorIndex</code>.
+     *
+     * @param index   the index of a reached node
+     * @return        the list of node identifiers from the start node
+     *                to the node at <code>index</code>
+     */
+    protected List<Integer> pathTo(int index)
+    {
+        List<Integer> path = new ArrayList<>();
+        for (int current = index; current >= 0; current = predecessorIndex[current])
+            path.add(maze.idAt(current));
+        Collections.reverse(path);
+        return path;
+    }
+}
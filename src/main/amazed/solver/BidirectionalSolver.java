@@ -0,0 +1,278 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>BidirectionalSolver</code> implements a solver for
+ * <code>Maze</code> objects using a bidirectional breadth-first
+ * search, which runs simultaneously forward from the start node and
+ * backward from all goal nodes (as given by <code>Query.goals</code>),
+ * and stops when the two searches meet.
+ * <p>
+ * Each side of the search has its own queue, bitset of visited
+ * nodes, and predecessor table. A side <em>meets</em> the other one
+ * when it visits a node that the other side has already visited. The
+ * path is then stitched together from the forward predecessors (from
+ * the meeting node back to the start node) and the backward
+ * predecessors (from the meeting node forward to a goal).
+ * <p>
+ * In sequential mode, the two sides take turns, each expanding one
+ * whole level of its search, starting with the side whose next level
+ * is smaller. In this mode, the first meeting yields a shortest path.
+ * <p>
+ * In parallel mode, the backward side is forked as a separate task,
+ * so that the two sides run on different workers of the pool without
+ * synchronizing with each other. Every side writes a node's
+ * predecessor before setting the node's bit in its visited bitset,
+ * and checks the other side's bitset right after; thus, meeting
+ * detection is lock-free, at least one side detects every meeting,
+ * and the other side's predecessors are visible to the side that
+ * detects it. The first meeting yields a valid path, but not
+ * necessarily a shortest one. The two sides share a flag, which a
+ * side sets when it finds a meeting or exhausts its queue, and which
+ * both sides test before expanding every node: if either side is
+ * exhausted without meeting the other, no path exists, and the other
+ * side stops too.
+ */
+
+public class BidirectionalSolver
+    extends SequentialSolver
+{
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal in sequential mode.
+     *
+     * @param maze   the maze to be searched
+     */
+    public BidirectionalSolver(Maze maze)
+    {
+        this(maze, false);
+    }
+
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal.
+     *
+     * @param maze       the maze to be searched
+     * @param parallel   if <code>true</code>, the two sides of the
+     *                   search run in parallel; otherwise, they take
+     *                   turns level by level
+     */
+    public BidirectionalSolver(Maze maze, boolean parallel)
+    {
+        super(maze);
+        this.parallel = parallel;
+    }
+
+    /**
+     * Does nothing: each side of the search allocates its own
+     * structures when the search begins.
+     */
+    @Override
+    protected void initStructures()
+    {
+    }
+
+    /**
+     * Whether the two sides of the search run in parallel.
+     */
+    protected final boolean parallel;
+
+    private Side forward, backward;
+
+    @Override
+    public String statistics()
+    {
+        if (forward == null)
+            return "Nodes visited: 0";
+        return "Nodes visited: " + forward.tail + " forward, " + backward.tail + " backward";
+    }
+
+    /**
+     * Searches for and returns the path, as a list of node
+     * identifiers, that goes from the start node to a goal node in
+     * the maze. If such a path cannot be found (because there are no
+     * goals, or all goals are unreacheable), the method returns
+     * <code>null</code>.
+     *
+     * @return   the list of node identifiers from the start node to a
+     *           goal node in the maze; <code>null</code> if such a path
+     *           cannot be found
+     */
+    @Override
+    public List<Integer> compute()
+    {
+        int startIndex = maze.indexOf(start);
+        forward = new Side(maze);
+        backward = new Side(maze);
+        forward.claim(startIndex, -1);
+        for (int goal: query.goals())
+            backward.claim(maze.indexOf(goal), -1);
+        if (backward.visited.get(startIndex))
+            return stitch(startIndex);
+        if (!backward.hasNext())
+            return null;
+        int meeting = parallel ? parallelSearch() : sequentialSearch();
+        if (meeting < 0)
+            return null;
+        return stitch(meeting);
+    }
+
+    // expand whole levels, smaller side first, until the sides meet
+    private int sequentialSearch()
+    {
+        while (forward.hasNext() && backward.hasNext()) {
+            int meeting;
+            if (forward.levelSize() <= backward.levelSize())
+                meeting = forward.expandLevel(backward);
+            else
+                meeting = backward.expandLevel(forward);
+            if (meeting >= 0)
+                return meeting;
+        }
+        return -1;
+    }
+
+    // expand the forward side here and the backward side in a forked
+    // task, until the sides meet or either side is exhausted, as
+    // signaled through a shared flag
+    private int parallelSearch()
+    {
+        AtomicInteger meeting = new AtomicInteger(-1);
+        AtomicBoolean done = new AtomicBoolean();
+        SideTask backwardTask = new SideTask(backward, forward, meeting, done);
+        backwardTask.fork();
+        new SideTask(forward, backward, meeting, done).compute();
+        backwardTask.join();
+        return meeting.get();
+    }
+
+    // path from the start node through node `meeting' to a goal
+    private List<Integer> stitch(int meeting)
+    {
+        List<Integer> path = new ArrayList<>();
+        for (int current = meeting; current >= 0; current = forward.predecessor[current])
+            path.add(maze.idAt(current));
+        Collections.reverse(path);
+        for (int current = backward.predecessor[meeting]; current >= 0;
+             current = backward.predecessor[current])
+            path.add(maze.idAt(current));
+        return path;
+    }
+
+    // one side of the search: a breadth-first search from one or more sources
+    private static class Side
+    {
+        private final Maze maze;
+        private final ConcurrentBitSet visited;
+        private final int[] predecessor;
+        // every node is enqueued at most once, so the queue never wraps
+        private final int[] queue;
+        private final int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+        private int head, tail;
+        private int player = -1;
+
+        Side(Maze maze)
+        {
+            this.maze = maze;
+            this.visited = new ConcurrentBitSet(maze.size());
+            this.predecessor = new int[maze.size()];
+            this.queue = new int[maze.size()];
+        }
+
+        // visit `index' from `from', unless already visited
+        boolean claim(int index, int from)
+        {
+            if (visited.get(index))
+                return false;
+            predecessor[index] = from;
+            visited.set(index);
+            queue[tail++] = index;
+            return true;
+        }
+
+        boolean hasNext()
+        {
+            return head < tail;
+        }
+
+        // number of nodes in the current level (or rather, left to expand)
+        int levelSize()
+        {
+            return tail - head;
+        }
+
+        // expand the node at the queue's head, returning a node where
+        // this side meets `other', or -1 if there is none
+        int expandNext(Side other)
+        {
+            int current = queue[head++];
+            if (player < 0)
+                player = maze.newPlayer(maze.idAt(current));
+            maze.move(player, maze.idAt(current));
+            int count = maze.neighborsAt(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int nb = neighbors[k];
+                if (claim(nb, current) && other.visited.get(nb))
+                    return nb;
+            }
+            return -1;
+        }
+
+        // expand all nodes currently in the queue, returning the
+        // first node where this side meets `other', or -1 if there is none
+        int expandLevel(Side other)
+        {
+            int end = tail;
+            while (head < end) {
+                int meeting = expandNext(other);
+                if (meeting >= 0)
+                    return meeting;
+            }
+            return -1;
+        }
+    }
+
+    // expansion of `side' until it meets `other', or it is
+    // exhausted, or `done' is set by the other side's task; a task
+    // only reads its own side's queue, and sets `done' when it finds
+    // a meeting or exhausts its side
+    private static class SideTask
+        extends RecursiveAction
+    {
+        private final Side side, other;
+        private final AtomicInteger meeting;
+        private final AtomicBoolean done;
+
+        SideTask(Side side, Side other, AtomicInteger meeting, AtomicBoolean done)
+        {
+            this.side = side;
+            this.other = other;
+            this.meeting = meeting;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute()
+        {
+            while (!done.get()) {
+                if (!side.hasNext()) {
+                    done.set(true);
+                    return;
+                }
+                int node = side.expandNext(other);
+                if (node >= 0) {
+                    meeting.compareAndSet(-1, node);
+                    done.set(true);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package amazed.solver;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <code>ConcurrentBitSet</code> is a fixed-size set of node indexes
+ * that many threads can update concurrently without locking.
+ * <p>
+ * Bits are packed 64 to a word in an <code>AtomicLongArray</code>;
+ * method <code>set</code> updates a word with a compare-and-set loop,
+ * and reports whether it is the call that actually set the bit. Thus,
+ * parallel solvers can use a single <code>ConcurrentBitSet</code> of
+ * visited nodes to <em>claim</em> nodes: the one thread whose call to
+ * <code>set</code> returns <code>true</code> owns the node, and all
+ * other threads back off. Compared to a concurrent set of boxed
+ * identifiers, a visited node costs one bit, and claims on different
+ * words never contend.
+ */
+
+public class ConcurrentBitSet
+{
+    private final AtomicLongArray words;
+    private final int size;
+
+    /**
+     * Creates an empty set of indexes in the range
+     * <code>[0, size)</code>.
+     *
+     * @param size   the number of indexes that the set can hold
+     */
+    public ConcurrentBitSet(int size)
+    {
+        this.size = size;
+        this.words = new AtomicLongArray((size + 63) >>> 6);
+    }
+
+    /**
+     * Returns the number of indexes that this set can hold.
+     *
+     * @return   the upper bound (excluded) of the indexes in this set
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Tests whether a given index is in this set.
+     *
+     * @param index   an index in the range <code>[0, size())</code>
+     * @return        <code>true</code> if <code>index</code> is in this set;
+     *                <code>false</code> otherwise
+     */
+    public boolean get(int index)
+    {
+        return (words.get(index >>> 6) & (1L << index)) != 0;
+    }
+
+    /**
+     * Atomically adds a given index to this set.
+     *
+     * @param index   an index in the range <code>[0, size())</code>
+     * @return        <code>true</code> if this call added
+     *                <code>index</code>; <code>false</code> if
+     *                <code>index</code> was already in this set
+     */
+    public boolean set(int index)
+    {
+        int wordIndex = index >>> 6;
+        long mask = 1L << index;
+        long word = words.get(wordIndex);
+        while ((word & mask) == 0) {
+            long witness = words.compareAndExchange(wordIndex, word, word | mask);
+            if (witness == word)
+                return true;
+            word = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Atomically removes a given index from this set.
+     *
+     * @param index   an index in the range <code>[0, size())</code>
+     * @return        <code>true</code> if this call removed
+     *                <code>index</code>; <code>false</code> if
+     *                <code>index</code> was not in this set
+     */
+    public boolean clear(int index)
+    {
+        int wordIndex = index >>> 6;
+        long mask = 1L << index;
+        long word = words.get(wordIndex);
+        while ((word & mask) != 0) {
+            long witness = words.compareAndExchange(wordIndex, word, word & ~mask);
+            if (witness == word)
+                return true;
+            word = witness;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the smallest index in this set that is greater than or
+     * equal to a given index.
+     *
+     * @param from   the index where to start looking
+     * @return       the first index in this set from <code>from</code>
+     *               on; <code>-1</code> if there is no such index
+     */
+    public int nextSetBit(int from)
+    {
+        if (from >= size)
+            return -1;
+        int wordIndex = from >>> 6;
+        long word = words.get(wordIndex) & (-1L << from);
+        while (word == 0) {
+            wordIndex += 1;
+            if (wordIndex == words.length())
+                return -1;
+            word = words.get(wordIndex);
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns the number of indexes in this set. The result is exact
+     * only if no other thread is updating the set.
+     *
+     * @return   the number of indexes in this set
+     */
+    public int cardinality()
+    {
+        int count = 0;
+        for (int w = 0; w < words.length(); w++)
+            count += Long.bitCount(words.get(w));
+        return count;
+    }
+}
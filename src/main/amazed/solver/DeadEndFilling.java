@@ -0,0 +1,190 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+import amazed.maze.Query;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * <code>DeadEndFilling</code> prunes a <code>Maze</code> by
+ * iteratively filling its dead ends, in parallel and without any
+ * search.
+ * <p>
+ * A dead end is an accessible node, other than the start node and
+ * the goals of a <code>Query</code>, with at most one neighbor that
+ * is not filled; if the start node is not accessible, its accessible
+ * neighbors, where the search steps first, are not dead ends either. Filling a dead end may turn its neighbor into a new
+ * dead end, so that whole
+ * branches that lead nowhere are filled one node at a time. No
+ * filled node is on a path from the start node to a goal that visits
+ * every node at most once; in a perfect maze (one without cycles), the
+ * nodes that are not filled are exactly those on the paths from the
+ * start node to the reachable goals.
+ * <p>
+ * The maze is split into chunks of consecutive indexes, processed by
+ * a tree of fork/join tasks. Every node has an atomic counter of its
+ * neighbors that are not filled. A task first initializes the
+ * counters of its chunk; after all counters are initialized, it fills
+ * all dead ends in its chunk, and follows the chain of nodes that
+ * become dead ends as a result, decrementing the counters of their
+ * neighbors. Only the task whose decrement brings a node's counter
+ * from two to one goes on to fill the node; thus every node is
+ * filled exactly once, and tasks never wait for each other.
+ * <p>
+ * Solvers that support pruning skip the filled nodes, as set by
+ * method <code>SequentialSolver.prune</code>.
+ */
+
+public class DeadEndFilling
+{
+    // number of node indexes processed by a task without splitting
+    private static final int CHUNK = 4096;
+
+    private final Maze maze;
+    private final Query query;
+    // the start node, if accessible, or else its accessible neighbors
+    private final int[] starts;
+    private final ConcurrentBitSet filled;
+    // degree[index] is the number of neighbors of index not filled
+    private final AtomicIntegerArray degree;
+    private final long time;
+
+    /**
+     * Fills all dead ends of <code>maze</code> for its default query.
+     *
+     * @param maze   the maze to be pruned
+     */
+    public DeadEndFilling(Maze maze)
+    {
+        this(new Query(maze));
+    }
+
+    /**
+     * Fills all dead ends of the maze of <code>query</code>, with the
+     * fork/join pool of the calling thread if it is a worker of one,
+     * and with the common pool otherwise.
+     *
+     * @param query   the query whose start node and goals are kept
+     */
+    public DeadEndFilling(Query query)
+    {
+        long begin = System.nanoTime();
+        this.maze = query.maze();
+        this.query = query;
+        int startIndex = maze.indexOf(query.start());
+        if (maze.isAccessibleAt(startIndex)) {
+            this.starts = new int[] { startIndex };
+        } else {
+            int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+            this.starts = Arrays.copyOf(neighbors, maze.neighborsAt(startIndex, neighbors));
+        }
+        this.filled = new ConcurrentBitSet(maze.size());
+        this.degree = new AtomicIntegerArray(maze.size());
+        new Fill(this, 0, maze.size(), false).invoke();
+        new Fill(this, 0, maze.size(), true).invoke();
+        time = System.nanoTime() - begin;
+    }
+
+    /**
+     * Returns the indexes of all filled nodes.
+     *
+     * @return   the set of filled node indexes
+     */
+    public ConcurrentBitSet filled()
+    {
+        return filled;
+    }
+
+    /**
+     * Returns the time it took to fill the dead ends.
+     *
+     * @return   the filling time in milliseconds
+     */
+    public long time()
+    {
+        return time / 1_000_000;
+    }
+
+    /**
+     * Returns a summary of the outcome of the filling.
+     *
+     * @return   the number of filled nodes and the time it took
+     */
+    public String statistics()
+    {
+        return "Nodes filled: " + filled.cardinality() + " in " + time() + " ms";
+    }
+
+    // whether node index can never be filled
+    private boolean isKept(int index)
+    {
+        for (int start: starts) {
+            if (index == start)
+                return true;
+        }
+        return query.hasGoalAt(index);
+    }
+
+    private static class Fill
+        extends RecursiveAction
+    {
+        private final DeadEndFilling filling;
+        private final int lo, hi;
+        // false: initialize counters; true: fill dead ends
+        private final boolean fill;
+
+        Fill(DeadEndFilling filling, int lo, int hi, boolean fill)
+        {
+            this.filling = filling;
+            this.lo = lo;
+            this.hi = hi;
+            this.fill = fill;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (hi - lo > CHUNK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Fill(filling, lo, mid, fill),
+                          new Fill(filling, mid, hi, fill));
+            } else if (fill) {
+                fillChunk();
+            } else {
+                for (int index = lo; index < hi; index++) {
+                    if (filling.maze.isAccessibleAt(index))
+                        filling.degree.set(index, filling.maze.degreeAt(index));
+                }
+            }
+        }
+
+        private void fillChunk()
+        {
+            Maze maze = filling.maze;
+            int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+            IntStack chain = new IntStack();
+            for (int index = lo; index < hi; index++) {
+                // only initial dead ends: the others are filled by the
+                // task that turns them into dead ends
+                if (!maze.isAccessibleAt(index) || maze.degreeAt(index) > 1
+                    || filling.isKept(index))
+                    continue;
+                chain.push(index);
+                while (!chain.isEmpty()) {
+                    int current = chain.pop();
+                    filling.filled.set(current);
+                    int count = maze.neighborsAt(current, neighbors);
+                    for (int k = 0; k < count; k++) {
+                        int nb = neighbors[k];
+                        if (!filling.filled.get(nb)
+                            && filling.degree.decrementAndGet(nb) == 1
+                            && !filling.isKept(nb))
+                            chain.push(nb);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.List;
+
+/**
+ * <code>DeadEndSolver</code> implements a solver for
+ * <code>Maze</code> objects that first fills all dead ends of the
+ * maze in parallel with <code>DeadEndFilling</code>, and then
+ * searches the nodes that are not filled.
+ * <p>
+ * In a perfect maze, the nodes that are not filled form the paths
+ * from the start node to the reachable goals, so that the search,
+ * the same depth-first search as <code>DenseSequentialSolver</code>'s,
+ * visits little more than the nodes on the path it returns. In mazes
+ * with cycles, filling stops at the cycles, and the search explores
+ * whatever remains. Method <code>statistics</code> reports the
+ * number of filled nodes, the time it took to fill them, and the
+ * number of nodes visited by the search.
+ */
+
+public class DeadEndSolver
+    extends DenseSequentialSolver
+{
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal.
+     *
+     * @param maze   the maze to be searched
+     */
+    public DeadEndSolver(Maze maze)
+    {
+        super(maze);
+    }
+
+    private DeadEndFilling filling;
+
+    @Override
+    public String statistics()
+    {
+        return filling.statistics() + ", " + super.statistics();
+    }
+
+    /**
+     * Fills the dead ends of the maze, and then searches for and
+     * returns the path, as a list of node identifiers, that goes
+     * from the start node to a goal node in the maze. If such a path
+     * cannot be found (because there are no goals, or all goals are
+     * unreacheable), the method returns <code>null</code>.
+     *
+     * @return   the list of node identifiers from the start node to a
+     *           goal node in the maze; <code>null</code> if such a path cannot
+     *           be found
+     */
+    @Override
+    public List<Integer> compute()
+    {
+        filling = new DeadEndFilling(query);
+        prune(filling.filled());
+        return super.compute();
+    }
+}
@@ -0,0 +1,75 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.List;
+
+/**
+ * <code>DenseSequentialSolver</code> implements a solver for
+ * <code>Maze</code> objects using a single-thread depth-first search
+ * that runs on node indexes rather than node identifiers.
+ * <p>
+ * The search is the same as <code>SequentialSolver</code>'s, but it
+ * keeps its state in primitive data structures keyed by node index:
+ * a growable <code>int</code> stack of frontier nodes, a set of
+ * visited nodes, and an <code>int</code> array of predecessors, all
+ * borrowed from a <code>SearchScratch</code> for the duration of
+ * <code>compute</code>. A node is marked as visited as soon as it is
+ * pushed, so that every node is pushed at most once and its
+ * predecessor is written once. As a result, the search loop allocates
+ * nothing and takes no locks, which makes this solver a fair
+ * single-thread baseline for the parallel solvers; and repeated
+ * searches by the same thread reuse the same scratch space, so that
+ * after the first one they allocate nothing but their result.
+ */
+
+public class DenseSequentialSolver
+    extends SequentialSolver
+{
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal.
+     *
+     * @param maze   the maze to be searched
+     */
+    public DenseSequentialSolver(Maze maze)
+    {
+        super(maze);
+    }
+
+    /**
+     * Searches the maze depth first from the start node, marking
+     * every node as visited when it is pushed, and returns the path
+     * found.
+     *
+     * @return   the list of node identifiers from the start node to a
+     *           goal node in the maze; <code>null</code> if such a path
+     *           cannot be found
+     */
+    @Override
+    protected List<Integer> depthFirstSearch()
+    {
+        int player = maze.newPlayer(start);
+        int startIndex = maze.indexOf(start);
+        IntStack frontier = scratch.frontier();
+        scratch.visit(startIndex, -1);
+        frontier.push(startIndex);
+        while (!frontier.isEmpty()) {
+            int current = frontier.pop();
+            visitedCount += 1;
+            if (query.hasGoalAt(current)) {
+                maze.move(player, maze.idAt(current));
+                return pathFromTo(start, maze.idAt(current));
+            }
+            maze.move(player, maze.idAt(current));
+            int count = maze.neighborsAt(current, neighbors);
+            for (int k = 0; k < count; k++) {
+                int nb = neighbors[k];
+                if ((pruned == null || !pruned.get(nb))
+                    && scratch.visit(nb, current))
+                    frontier.push(nb);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,235 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * <code>DirectionOptimizingSolver</code> implements a solver for
+ * <code>Maze</code> objects using a direction-optimizing fork/join
+ * breadth-first search, which finds a <em>shortest</em> path from the
+ * start node to a goal.
+ * <p>
+ * Like <code>ParallelBreadthFirstSolver</code>, the search proceeds
+ * level by level, but every level is expanded in one of two
+ * directions. A <em>top-down</em> step expands every node in the
+ * frontier, claiming its unvisited neighbors; it is the same step
+ * as <code>ParallelBreadthFirstSolver</code>'s. A <em>bottom-up</em>
+ * step scans every unvisited accessible node, and claims it as soon
+ * as it finds one of its neighbors in the frontier; it is cheaper
+ * than a top-down step when the frontier is large, because most
+ * neighbors of a large frontier are already visited, whereas every
+ * unvisited node stops at its first neighbor in the frontier. In
+ * bottom-up steps, the frontier is a bitset over node indexes, and
+ * the scan is split across fork/join tasks in ranges of
+ * <code>SCAN_CHUNK</code> indexes.
+ * <p>
+ * The search switches from top-down to bottom-up when the frontier
+ * has more than <code>1/ALPHA</code> as many nodes as the unexplored
+ * part of the maze, and back to top-down when the frontier shrinks
+ * below <code>1/BETA</code> of all accessible nodes. Since every node
+ * has at most four neighbors, node counts are used in place of the
+ * edge counts of the original heuristic.
+ */
+
+public class DirectionOptimizingSolver
+    extends ParallelBreadthFirstSolver
+{
+    /**
+     * Switch to bottom-up when the frontier is larger than the
+     * unexplored nodes divided by <code>ALPHA</code>.
+     */
+    public static final int ALPHA = 14;
+    /**
+     * Switch back to top-down when the frontier is smaller than the
+     * accessible nodes divided by <code>BETA</code>.
+     */
+    public static final int BETA = 24;
+    /**
+     * The number of node indexes scanned by a single task in a
+     * bottom-up step; a multiple of 64, so that tasks update disjoint
+     * words of the bitsets.
+     */
+    public static final int SCAN_CHUNK = 64*256;
+
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal.
+     *
+     * @param maze   the maze to be searched
+     */
+    public DirectionOptimizingSolver(Maze maze)
+    {
+        super(maze);
+    }
+
+    /**
+     * The number of levels expanded bottom-up by the search.
+     */
+    protected int bottomUpLevels;
+
+    @Override
+    public String statistics()
+    {
+        return "Levels: " + levels + " (" + bottomUpLevels + " bottom-up)"
+            + ", tasks created: " + context.tasks() + ", nodes visited: " + context.nodes();
+    }
+
+    /**
+     * Searches for and returns a shortest path, as a list of node
+     * identifiers, that goes from the start node to a goal node in
+     * the maze. If such a path cannot be found (because there are no
+     * goals, or all goals are unreacheable), the method returns
+     * <code>null</code>.
+     *
+     * @return   the list of node identifiers of a shortest path from the
+     *           start node to a goal node in the maze; <code>null</code>
+     *           if such a path cannot be found
+     */
+    @Override
+    public List<Integer> compute()
+    {
+        int startIndex = maze.indexOf(start);
+        context.claim(startIndex, -1);
+        if (query.hasGoalAt(startIndex)) {
+            context.complete(context.pathTo(startIndex));
+            return context.result();
+        }
+        int accessible = new Count(this, 0, maze.size()).invoke();
+        int unexplored = accessible - 1;
+        // exactly one of frontier and frontierBits is the current frontier
+        int[] frontier = { startIndex };
+        ConcurrentBitSet frontierBits = null;
+        int size = 1;
+        while (size > 0 && !context.isCancelled()) {
+            levels += 1;
+            if (frontierBits == null && size > unexplored / ALPHA) {
+                frontierBits = new ConcurrentBitSet(maze.size());
+                for (int index: frontier)
+                    frontierBits.set(index);
+                frontier = null;
+            } else if (frontierBits != null && size < accessible / BETA) {
+                frontier = new int[size];
+                int i = 0;
+                for (int index = frontierBits.nextSetBit(0); index >= 0;
+                     index = frontierBits.nextSetBit(index + 1))
+                    frontier[i++] = index;
+                frontierBits = null;
+            }
+            if (frontierBits != null) {
+                bottomUpLevels += 1;
+                ConcurrentBitSet next = new ConcurrentBitSet(maze.size());
+                Scan scan = new Scan(this, frontierBits, next, 0, maze.size());
+                size = scan.invoke();
+                frontierBits = next;
+            } else {
+                frontier = expand(frontier);
+                size = frontier.length;
+            }
+            unexplored -= size;
+        }
+        return context.result();
+    }
+
+    // middle of [lo, hi), aligned to SCAN_CHUNK from lo
+    private static int split(int lo, int hi)
+    {
+        return lo + Math.max(1, (hi - lo) / SCAN_CHUNK / 2)*SCAN_CHUNK;
+    }
+
+    // number of accessible nodes with index in [lo, hi)
+    private static class Count
+        extends RecursiveTask<Integer>
+    {
+        private final DirectionOptimizingSolver solver;
+        private final int lo, hi;
+
+        Count(DirectionOptimizingSolver solver, int lo, int hi)
+        {
+            this.solver = solver;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if (hi - lo > SCAN_CHUNK) {
+                int mid = split(lo, hi);
+                Count left = new Count(solver, lo, mid);
+                left.fork();
+                return new Count(solver, mid, hi).compute() + left.join();
+            }
+            int count = 0;
+            for (int index = lo; index < hi; index++) {
+                if (solver.maze.isAccessibleAt(index))
+                    count += 1;
+            }
+            return count;
+        }
+    }
+
+    // bottom-up step over node indexes in [lo, hi), returning the
+    // number of nodes claimed into the next frontier
+    private static class Scan
+        extends RecursiveTask<Integer>
+    {
+        private final DirectionOptimizingSolver solver;
+        private final ConcurrentBitSet frontier, next;
+        private final int lo, hi;
+
+        Scan(DirectionOptimizingSolver solver, ConcurrentBitSet frontier,
+             ConcurrentBitSet next, int lo, int hi)
+        {
+            this.solver = solver;
+            this.frontier = frontier;
+            this.next = next;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Integer compute()
+        {
+            if (hi - lo > SCAN_CHUNK) {
+                int mid = split(lo, hi);
+                Scan left = new Scan(solver, frontier, next, lo, mid);
+                left.fork();
+                return new Scan(solver, frontier, next, mid, hi).compute() + left.join();
+            }
+            return scan();
+        }
+
+        private int scan()
+        {
+            Maze maze = solver.maze;
+            SearchContext context = solver.context;
+            ConcurrentBitSet visited = context.visited();
+            int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+            int player = -1;
+            int claimed = 0;
+            context.addTask();
+            for (int index = lo; index < hi && !context.isCancelled(); index++) {
+                if (visited.get(index) || !maze.isAccessibleAt(index))
+                    continue;
+                int count = maze.neighborsAt(index, neighbors);
+                for (int k = 0; k < count; k++) {
+                    int nb = neighbors[k];
+                    if (frontier.get(nb) && context.claim(index, nb)) {
+                        if (player < 0)
+                            player = maze.newPlayer(maze.idAt(index));
+                        maze.move(player, maze.idAt(index));
+                        next.set(index);
+                        claimed += 1;
+                        if (solver.query.hasGoalAt(index))
+                            context.complete(context.pathTo(index));
+                        break;
+                    }
+                }
+            }
+            context.addNodes(claimed);
+            return claimed;
+        }
+    }
+}
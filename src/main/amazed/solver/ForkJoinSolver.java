@@ -1,11 +1,10 @@
 package amazed.solver;
 
 import amazed.maze.Maze;
+import amazed.maze.Query;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountedCompleter;
 
 /**
  * <code>ForkJoinSolver</code> implements a solver for
@@ -14,6 +13,28 @@ import java.util.concurrent.ConcurrentSkipListSet;
  * <p>
  * Instances of <code>ForkJoinSolver</code> should be run by a
  * <code>ForkJoinPool</code> object.
+ * <p>
+ * The search is carried out by a tree of tasks of class
+ * <code>CountedCompleter</code>, all sharing the same
+ * <code>SearchContext</code>. Every task runs a depth-first search on
+ * its own stack of frontier nodes, and forks new tasks at crossings.
+ * <p>
+ * How often tasks fork is controlled by <code>forkAfter</code>: a task
+ * forks at a crossing only after visiting at least
+ * <code>forkAfter</code> nodes since it started or last forked, so
+ * that every task does a bounded minimum amount of work. In
+ * <em>adaptive</em> mode, a task additionally forks only when its
+ * worker has few queued tasks that other workers could steal (as
+ * reported by <code>getSurplusQueuedTaskCount</code>); thus, open
+ * areas with many crossings do not flood the pool with tiny tasks,
+ * while long corridors still spread across workers as soon as some
+ * worker becomes idle. The number of tasks created by a search is
+ * available from <code>getContext().tasks()</code>.
+ * The first task that reaches a goal records its path in the context,
+ * cancels the search, and completes the root task right away: the
+ * solver returns without waiting for the other tasks, which observe
+ * the cancellation at their next step and stop. If no task reaches a
+ * goal, the root task completes when all tasks have completed.
  */
 
 
@@ -29,15 +50,16 @@ public class ForkJoinSolver
     public ForkJoinSolver(Maze maze)
     {
         super(maze);
+        this.context = new SearchContext(maze);
     }
 
     /**
      * Creates a solver that searches in <code>maze</code> from the
-     * start node to a goal, forking after a given number of allVisited
+     * start node to a goal, forking after a given number of visited
      * nodes.
      *
      * @param maze        the maze to be searched
-     * @param forkAfter   the number of steps (allVisited nodes) after
+     * @param forkAfter   the number of steps (visited nodes) after
      *                    which a parallel task is forked; if
      *                    <code>forkAfter &lt;= 0</code> the solver never
      *                    forks new tasks
@@ -46,7 +68,84 @@ public class ForkJoinSolver
     {
         this(maze);
         this.forkAfter = forkAfter;
-        this.newChild = false;
+    }
+
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal, forking after a given number of visited
+     * nodes, and possibly only when workers run out of tasks.
+     *
+     * @param maze        the maze to be searched
+     * @param forkAfter   the number of steps (visited nodes) after
+     *                    which a parallel task is forked; if
+     *                    <code>adaptive</code> is <code>false</code>
+     *                    and <code>forkAfter &lt;= 0</code> the solver
+     *                    never forks new tasks
+     * @param adaptive    if <code>true</code>, a task forks only if its
+     *                    worker has at most <code>MAX_SURPLUS</code>
+     *                    surplus queued tasks, and any
+     *                    <code>forkAfter &lt;= 0</code> means forking
+     *                    without a minimum number of steps
+     */
+    public ForkJoinSolver(Maze maze, int forkAfter, boolean adaptive)
+    {
+        this(maze, forkAfter);
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * In adaptive mode, the maximum number of surplus queued tasks of
+     * a worker that still lets its tasks fork.
+     */
+    public static final int MAX_SURPLUS = 3;
+
+    /**
+     * Does nothing: every task keeps its own primitive frontier, and
+     * visited nodes and predecessors are kept in <code>context</code>.
+     */
+    @Override
+    protected void initStructures()
+    {
+    }
+
+    /**
+     * The state of the search shared by all the tasks of this solver.
+     */
+    protected final SearchContext context;
+    /**
+     * Whether forking also depends on the number of surplus queued
+     * tasks.
+     */
+    protected boolean adaptive = false;
+
+    /**
+     * Returns the state of the search shared by all the tasks of this
+     * solver, including statistics about the search.
+     *
+     * @return   the context of the search performed by this solver
+     */
+    public SearchContext getContext()
+    {
+        return context;
+    }
+
+    /**
+     * Makes the search skip some nodes by excluding them from
+     * <code>context</code>.
+     *
+     * @param pruned   the indexes of the nodes to be skipped
+     */
+    @Override
+    public void prune(ConcurrentBitSet pruned)
+    {
+        super.prune(pruned);
+        context.exclude(pruned);
+    }
+
+    @Override
+    public String statistics()
+    {
+        return "Tasks created: " + context.tasks() + ", nodes visited: " + context.nodes();
     }
 
     /**
@@ -60,75 +159,117 @@ public class ForkJoinSolver
      *           goal node in the maze; <code>null</code> if such a path cannot
      *           be found.
      */
-    protected boolean newChild;
-
-    // Static so that visited cells are shared by all instances/players
-    protected final static Set<Integer> allVisited = new ConcurrentSkipListSet<>();
-    // If true, stops all players from moving
-    private static boolean goalFound;
-
     @Override
     public List<Integer> compute()
     {
-        return parallelSearch();
+        int startIndex = maze.indexOf(start);
+        context.claim(startIndex, -1);
+        context.addTask();
+        return new SearchTask(null, this, startIndex).invoke();
     }
 
-    private List<Integer> parallelSearch() {
-        // one player active on the maze at start
-        int player = maze.newPlayer(start);
-        // start with start node
-        frontier.push(start);
-        // as long as not all nodes have been processed
-        while (!frontier.empty() && !(goalFound)) {
-            // get the new node to process
-            int current = frontier.pop();
-            // if current node has a goal
-            if (maze.hasGoal(current) ) {
-                // move player to goal
-                maze.move(player, current);
-                // search finished: reconstruct and return path
-                return pathFromTo(start, current); }
-            /* if current node has not been visited yet,
-             * OR if it is a newly created child (in which case adding it to allVisited has already been
-              * handled in handleForks*/
-            if ((allVisited.add(current) || newChild) && !(goalFound)) {
-                newChild = false;
-                // move player to current node
-                maze.move(player, current);
-                // The path created by appending current instance with its children
-                List<Integer> path = handleForks(current);
-                // If path != null it must be the goal path
-                if (path != null) return path;
-                // add neighbour to the nodes to be processed
-                for (int neighbour: maze.neighbors(current)) {
-                    frontier.push(neighbour);
-                    // if neighbour has not been already visited,
-                    // neighbour can be reached from current (i.e., current is nb's predecessor)
-                    if (!allVisited.contains(neighbour)) //not thread safe but doesn't matter since players that get-
-                        predecessor.put(neighbour, current); } } }//  -blocked off will eventually return null anyway
-        // all nodes explored, no goal found
-        return null; }
-
-    //Forks children and evaluates if they found the goal
-    private List<Integer> handleForks(int current) {
-        List<ForkJoinSolver> solvers = new ArrayList<>();
-        //Only forks at a crossing
-        if (maze.neighbors(current).size() > 2) {
-            for (int neighbour: maze.neighbors(current)) {
-                if(allVisited.add(neighbour)){ //if possible add the neighbour to allVisited
-                    ForkJoinSolver childSolver = new ForkJoinSolver(maze);
-                    childSolver.start = neighbour; //child starts at the neighbour cell
-                    childSolver.newChild = true; //set so that the child wont have to add its cell to allVisited again
-                    childSolver.fork();
-                    solvers.add(childSolver); } }
-            for (ForkJoinSolver solver : solvers) {
-                List<Integer> result = solver.join();
-                // If goal found, appends child's path to parent's
-                if (result != null) {
-                    List<Integer> path = pathFromTo(start, current);
-                    path.addAll(result);
-                    goalFound = !goalFound;
-                        return path; }} }
-        return null;
+    // depth-first search from one node, forking a new task for every
+    // branch of a crossing but one whenever granularity allows it
+    private static class SearchTask
+        extends CountedCompleter<List<Integer>>
+    {
+        private final Maze maze;
+        private final Query query;
+        private final SearchContext context;
+        private final int forkAfter;
+        private final boolean adaptive;
+        private final int start;
+        private final IntStack frontier = new IntStack();
+        private final int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+
+        SearchTask(SearchTask parent, ForkJoinSolver solver, int start)
+        {
+            super(parent);
+            this.maze = solver.maze;
+            this.query = solver.query;
+            this.context = solver.context;
+            this.forkAfter = solver.forkAfter;
+            this.adaptive = solver.adaptive;
+            this.start = start;
+        }
+
+        // child task of `parent' starting at node `start'
+        SearchTask(SearchTask parent, int start)
+        {
+            super(parent);
+            this.maze = parent.maze;
+            this.query = parent.query;
+            this.context = parent.context;
+            this.forkAfter = parent.forkAfter;
+            this.adaptive = parent.adaptive;
+            this.start = start;
+        }
+
+        @Override
+        public void compute()
+        {
+            // a task forked before the search was cancelled does no work
+            if (!context.isCancelled())
+                search();
+            tryComplete();
+        }
+
+        // may a task that visited `steps' nodes since it last forked fork now?
+        private boolean mayFork(int steps)
+        {
+            if (adaptive)
+                return steps >= forkAfter && getSurplusQueuedTaskCount() <= MAX_SURPLUS;
+            return forkAfter > 0 && steps >= forkAfter;
+        }
+
+        private void search()
+        {
+            int player = maze.newPlayer(maze.idAt(start));
+            long visited = 0;
+            int steps = 0;
+            frontier.push(start);
+            while (!frontier.isEmpty() && !context.isCancelled()) {
+                int current = frontier.pop();
+                visited += 1;
+                steps += 1;
+                maze.move(player, maze.idAt(current));
+                if (query.hasGoalAt(current)) {
+                    // first result wins: complete the whole search
+                    if (context.complete(context.pathTo(current)))
+                        quietlyCompleteRoot();
+                    break;
+                }
+                int count = maze.neighborsAt(current, neighbors);
+                int claimed = 0;
+                for (int k = 0; k < count; k++) {
+                    if (context.claim(neighbors[k], current))
+                        neighbors[claimed++] = neighbors[k];
+                }
+                // at a crossing, fork all new branches but the last one
+                if (claimed > 1 && mayFork(steps)) {
+                    for (int k = 0; k < claimed - 1; k++)
+                        fork(neighbors[k]);
+                    frontier.push(neighbors[claimed - 1]);
+                    steps = 0;
+                } else {
+                    for (int k = 0; k < claimed; k++)
+                        frontier.push(neighbors[k]);
+                }
+            }
+            context.addNodes(visited);
+        }
+
+        private void fork(int index)
+        {
+            addToPendingCount(1);
+            context.addTask();
+            new SearchTask(this, index).fork();
+        }
+
+        @Override
+        public List<Integer> getRawResult()
+        {
+            return context.result();
+        }
     }
 }
@@ -0,0 +1,112 @@
+package amazed.solver;
+
+import java.util.Arrays;
+
+
+// binary min-heap of node indexes in [0, capacity) with long keys,
+// indexed so that the key of an element can be decreased in place;
+// never boxes its elements
+class IntMinHeap
+{
+    // heap[0..size) is a binary heap of elements ordered by keys
+    private final int[] heap;
+    // keys[e] is the key of element e, if e is in the heap
+    private final long[] keys;
+    // position[e] is the position of element e in heap, or -1
+    private final int[] position;
+    private int size;
+
+    IntMinHeap(int capacity)
+    {
+        heap = new int[capacity];
+        keys = new long[capacity];
+        position = new int[capacity];
+        Arrays.fill(position, -1);
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    boolean contains(int element)
+    {
+        return position[element] >= 0;
+    }
+
+    long key(int element)
+    {
+        return keys[element];
+    }
+
+    // add `element', not in the heap, with `key'
+    void insert(int element, long key)
+    {
+        keys[element] = key;
+        heap[size] = element;
+        position[element] = size;
+        size += 1;
+        siftUp(size - 1);
+    }
+
+    // lower the key of `element', in the heap, to `key'
+    void decrease(int element, long key)
+    {
+        keys[element] = key;
+        siftUp(position[element]);
+    }
+
+    // remove and return the element with the smallest key
+    int poll()
+    {
+        int min = heap[0];
+        position[min] = -1;
+        size -= 1;
+        if (size > 0) {
+            heap[0] = heap[size];
+            position[heap[0]] = 0;
+            siftDown(0);
+        }
+        return min;
+    }
+
+    private void siftUp(int i)
+    {
+        int element = heap[i];
+        long key = keys[element];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[heap[parent]] <= key)
+                break;
+            heap[i] = heap[parent];
+            position[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = element;
+        position[element] = i;
+    }
+
+    private void siftDown(int i)
+    {
+        int element = heap[i];
+        long key = keys[element];
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2*i + 1;
+            if (child + 1 < size && keys[heap[child + 1]] < keys[heap[child]])
+                child += 1;
+            if (key <= keys[heap[child]])
+                break;
+            heap[i] = heap[child];
+            position[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = element;
+        position[element] = i;
+    }
+}
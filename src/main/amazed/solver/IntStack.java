@@ -0,0 +1,62 @@
+package amazed.solver;
+
+import java.util.Arrays;
+
+
+// growable stack of primitive ints, never boxing its elements
+class IntStack
+{
+    private int[] elements;
+    private int size;
+
+    IntStack()
+    {
+        this(64);
+    }
+
+    IntStack(int capacity)
+    {
+        elements = new int[Math.max(capacity, 1)];
+    }
+
+    boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    int size()
+    {
+        return size;
+    }
+
+    void push(int element)
+    {
+        if (size == elements.length)
+            elements = Arrays.copyOf(elements, 2*size);
+        elements[size++] = element;
+    }
+
+    int pop()
+    {
+        return elements[--size];
+    }
+
+    // element at `position', counting from the bottom
+    int get(int position)
+    {
+        return elements[position];
+    }
+
+    void clear()
+    {
+        size = 0;
+    }
+
+    // copy all elements, bottom first, into `destination' from
+    // `offset', and return the offset after the last copied element
+    int copyTo(int[] destination, int offset)
+    {
+        System.arraycopy(elements, 0, destination, offset, size);
+        return offset + size;
+    }
+}
@@ -0,0 +1,157 @@
+package amazed.solver;
+
+import amazed.maze.Direction;
+import amazed.maze.Maze;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <code>JumpPointSolver</code> implements a solver for
+ * <code>Maze</code> objects using Jump Point Search, a variant of A*
+ * for uniform-cost grids that finds a <em>shortest</em> path from the
+ * start node to a goal while expanding only few <em>jump
+ * points</em>.
+ * <p>
+ * Many shortest paths in a grid are symmetric: they differ only in
+ * the order of their horizontal and vertical moves. Jump Point Search
+ * prunes them by moving in straight lines, and stopping only at jump
+ * points: goals, and nodes where a shortest path may have to turn.
+ * This is the 4-connected variant of the search. A horizontal jump
+ * stops at a node whose vertical neighbor is accessible while the
+ * previous node's vertical neighbor on the same side is not (a
+ * <em>forced</em> neighbor). A vertical jump stops similarly at
+ * forced horizontal neighbors, and also at any node from which a
+ * horizontal jump reaches a jump point. From a jump point, the search
+ * continues in every direction except the one it came from.
+ * <p>
+ * Jump points are expanded in A* order, with the same heuristic,
+ * open set, and closed set as <code>AStarSolver</code>; the cost of a
+ * jump is the number of nodes it crosses. The returned path is
+ * expanded to list every node between consecutive jump points, so it
+ * is a connected path like that of every other solver.
+ */
+
+public class JumpPointSolver
+    extends AStarSolver
+{
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal.
+     *
+     * @param maze   the maze to be searched
+     */
+    public JumpPointSolver(Maze maze)
+    {
+        super(maze);
+    }
+
+    /**
+     * Initializes the structures of <code>AStarSolver</code> and
+     * <code>arrival</code>.
+     */
+    @Override
+    protected void initStructures()
+    {
+        super.initStructures();
+        arrival = new Direction[maze.size()];
+    }
+
+    /**
+     * The direction in which the search moved to reach every reached
+     * jump point on the best path found so far; <code>null</code> for
+     * the start node.
+     */
+    protected Direction[] arrival;
+
+    @Override
+    public String statistics()
+    {
+        return "Jump points expanded: " + expanded;
+    }
+
+    /**
+     * Relaxes the jump points reached from an expanded jump point, by
+     * jumping in every direction but the one opposite to the
+     * direction in which it was reached.
+     *
+     * @param current   the index of the jump point being expanded
+     */
+    @Override
+    protected void expand(int current)
+    {
+        Direction from = arrival[current];
+        for (Direction direction: DIRECTIONS) {
+            if (from != null && direction == from.reverse())
+                continue;
+            int next = jump(current, direction);
+            if (next >= 0
+                && relax(next, current, distance[current] + maze.distanceAt(current, next)))
+                arrival[next] = direction;
+        }
+    }
+
+    // jump from `index' in `direction', returning the index of the
+    // first jump point on the way, or -1 if there is none
+    private int jump(int index, Direction direction)
+    {
+        int current = index;
+        while (true) {
+            int previous = current;
+            current = maze.neighborAt(current, direction);
+            if (current < 0)
+                return -1;
+            if (query.hasGoalAt(current))
+                return current;
+            if (direction.isHorizontal()) {
+                if (isForced(current, previous, Direction.NORTH)
+                    || isForced(current, previous, Direction.SOUTH))
+                    return current;
+            } else {
+                if (isForced(current, previous, Direction.WEST)
+                    || isForced(current, previous, Direction.EAST))
+                    return current;
+                if (jump(current, Direction.WEST) >= 0
+                    || jump(current, Direction.EAST) >= 0)
+                    return current;
+            }
+        }
+    }
+
+    // is the neighbor of `current' on `side' accessible, and that of `previous' not?
+    private boolean isForced(int current, int previous, Direction side)
+    {
+        return maze.neighborAt(current, side) >= 0 && maze.neighborAt(previous, side) < 0;
+    }
+
+    /**
+     * Returns the path, as a list of node identifiers, that goes
+     * from the start node to a given jump point, including all nodes
+     * between consecutive jump points.
+     *
+     * @param index   the index of a reached jump point
+     * @return        the list of node identifiers from the start node
+     *                to the node at <code>index</code>
+     */
+    @Override
+    protected List<Integer> pathTo(int index)
+    {
+        List<Integer> path = new ArrayList<>();
+        int current = index;
+        while (predecessorIndex[current] >= 0) {
+            int jumpPoint = predecessorIndex[current];
+            // consecutive jump points are on the same row or column;
+            // step by index rather than through neighbors, since the
+            // start node need not be accessible
+            int step = (jumpPoint - current) / maze.distanceAt(current, jumpPoint);
+            for (; current != jumpPoint; current += step)
+                path.add(maze.idAt(current));
+        }
+        path.add(maze.idAt(current));
+        Collections.reverse(path);
+        return path;
+    }
+}
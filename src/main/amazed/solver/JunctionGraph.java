@@ -0,0 +1,263 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.Arrays;
+
+/**
+ * <code>JunctionGraph</code> is a compressed representation of the
+ * graph of a <code>Maze</code>, where every corridor is contracted
+ * into a single weighted edge.
+ * <p>
+ * The nodes of the compressed graph, called <em>junctions</em>, are
+ * the accessible nodes of the maze that do not have exactly two
+ * neighbors (crossings and dead ends), and all goals. Every other
+ * accessible node lies on a <em>corridor</em>: a chain of nodes
+ * with two neighbors each, which the graph replaces by an edge
+ * between the two junctions at its ends, weighted by its length.
+ * Junctions are numbered consecutively from <code>0</code>, in the
+ * order of their indexes in the maze.
+ * <p>
+ * Every edge also records the <em>via</em> node: the first node on
+ * the corridor after the junction where the edge begins. Since a
+ * corridor has no branches, a junction and a via node determine the
+ * whole corridor, which method <code>walk</code> follows cell by
+ * cell; this is how a path in the compressed graph is expanded back
+ * into a path in the maze. Edges are stored in primitive arrays in
+ * compressed sparse row form: the edges from junction
+ * <code>j</code> are those in
+ * <code>[firstEdge(j), firstEdge(j + 1))</code>.
+ * <p>
+ * The junctions of a graph include the goals of the maze, so that
+ * searches for them need not look inside corridors; searches for
+ * other goals (see <code>amazed.maze.Query</code>) must walk the
+ * corridors to find those that lie on them.
+ * <p>
+ * A graph is built once in time linear in the size of the maze, and
+ * is read-only afterwards, so that it can be shared by any number of
+ * searches of the same maze, also concurrently.
+ */
+
+public class JunctionGraph
+{
+    private final Maze maze;
+    // junction[index] is the junction number of node index, or -1
+    private final int[] junction;
+    // junctionIndex[j] is the index of junction j in the maze
+    private final int[] junctionIndex;
+    // edges from junction j are in [edgeOffset[j], edgeOffset[j+1])
+    private final int[] edgeOffset;
+    private final int[] edgeTarget;
+    private final int[] edgeLength;
+    private final int[] edgeVia;
+    private final long buildTime;
+
+    /**
+     * Builds the junction graph of <code>maze</code>.
+     *
+     * @param maze   the maze whose graph is compressed
+     */
+    public JunctionGraph(Maze maze)
+    {
+        long begin = System.nanoTime();
+        this.maze = maze;
+        int size = maze.size();
+        junction = new int[size];
+        int count = 0;
+        for (int index = 0; index < size; index++) {
+            if (maze.isAccessibleAt(index)
+                && (maze.degreeAt(index) != 2 || maze.hasGoalAt(index)))
+                junction[index] = count++;
+            else
+                junction[index] = -1;
+        }
+        junctionIndex = new int[count];
+        edgeOffset = new int[count + 1];
+        int[] target = new int[Maze.MAX_NEIGHBORS*count];
+        int[] length = new int[target.length];
+        int[] via = new int[target.length];
+        int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+        int edges = 0;
+        for (int index = 0; index < size; index++) {
+            int j = junction[index];
+            if (j < 0)
+                continue;
+            junctionIndex[j] = index;
+            edgeOffset[j] = edges;
+            int degree = maze.neighborsAt(index, neighbors);
+            for (int k = 0; k < degree; k++) {
+                long end = walk(index, neighbors[k], null);
+                target[edges] = junction[endOf(end)];
+                length[edges] = lengthOf(end);
+                via[edges] = neighbors[k];
+                edges += 1;
+            }
+        }
+        edgeOffset[count] = edges;
+        edgeTarget = Arrays.copyOf(target, edges);
+        edgeLength = Arrays.copyOf(length, edges);
+        edgeVia = Arrays.copyOf(via, edges);
+        buildTime = System.nanoTime() - begin;
+    }
+
+    /**
+     * Returns the maze whose graph this graph compresses.
+     *
+     * @return   the maze of this graph
+     */
+    public Maze maze()
+    {
+        return maze;
+    }
+
+    /**
+     * Returns the number of junctions in the graph.
+     *
+     * @return   the number of junctions
+     */
+    public int junctions()
+    {
+        return junctionIndex.length;
+    }
+
+    /**
+     * Returns the number of edges in the graph. Every corridor counts
+     * as two edges, one from either end, even if both ends are the
+     * same junction.
+     *
+     * @return   the number of edges
+     */
+    public int edges()
+    {
+        return edgeTarget.length;
+    }
+
+    /**
+     * Returns the time it took to build the graph.
+     *
+     * @return   the build time in milliseconds
+     */
+    public long buildTime()
+    {
+        return buildTime / 1_000_000;
+    }
+
+    /**
+     * Returns the junction number of a node, if it is a junction.
+     *
+     * @param index   the index of a node in the maze
+     * @return        the junction number of node <code>index</code>;
+     *                <code>-1</code> if it is not a junction
+     */
+    public int junctionAt(int index)
+    {
+        return junction[index];
+    }
+
+    /**
+     * Returns the index in the maze of a junction.
+     *
+     * @param j   a junction number
+     * @return    the index of junction <code>j</code> in the maze
+     */
+    public int indexOf(int j)
+    {
+        return junctionIndex[j];
+    }
+
+    /**
+     * Returns the number of the first edge from a junction. The edges
+     * from junction <code>j</code> are numbered from
+     * <code>firstEdge(j)</code> included to
+     * <code>firstEdge(j + 1)</code> excluded.
+     *
+     * @param j   a junction number, or the number of junctions
+     * @return    the number of the first edge from junction <code>j</code>
+     */
+    public int firstEdge(int j)
+    {
+        return edgeOffset[j];
+    }
+
+    /**
+     * Returns the junction where an edge ends.
+     *
+     * @param e   an edge number
+     * @return    the junction number of the end of edge <code>e</code>
+     */
+    public int target(int e)
+    {
+        return edgeTarget[e];
+    }
+
+    /**
+     * Returns the length of an edge, that is the number of steps in
+     * the maze along its corridor.
+     *
+     * @param e   an edge number
+     * @return    the length of edge <code>e</code>
+     */
+    public int length(int e)
+    {
+        return edgeLength[e];
+    }
+
+    /**
+     * Returns the via node of an edge: the first node on its
+     * corridor after the junction where it begins.
+     *
+     * @param e   an edge number
+     * @return    the index of the via node of edge <code>e</code>
+     */
+    public int via(int e)
+    {
+        return edgeVia[e];
+    }
+
+    /**
+     * Follows the corridor that leaves node <code>from</code> through
+     * its neighbor <code>via</code>, until it reaches a junction or
+     * goes back to <code>from</code>. The result encodes the index of
+     * the node where the walk ends and the number of steps taken,
+     * which methods <code>endOf</code> and <code>lengthOf</code>
+     * extract. Node <code>from</code> need not be a junction, so that
+     * a search can also begin in the middle of a corridor.
+     *
+     * @param from    the index of the node where the walk begins
+     * @param via     the index of a neighbor of <code>from</code>
+     * @param cells   if not <code>null</code>, receives the indexes of
+     *                all nodes on the walk after <code>from</code>,
+     *                the last one included
+     * @return        the end and the length of the walk
+     */
+    long walk(int from, int via, IntStack cells)
+    {
+        int previous = from;
+        int current = via;
+        int length = 1;
+        int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+        while (true) {
+            if (cells != null)
+                cells.push(current);
+            if (junction[current] >= 0 || current == from)
+                return ((long) length << 32) | current;
+            maze.neighborsAt(current, neighbors);
+            int next = (neighbors[0] == previous) ? neighbors[1] : neighbors[0];
+            previous = current;
+            current = next;
+            length += 1;
+        }
+    }
+
+    // the index of the node where a walk ends
+    static int endOf(long walk)
+    {
+        return (int) walk;
+    }
+
+    // the number of steps of a walk
+    static int lengthOf(long walk)
+    {
+        return (int) (walk >>> 32);
+    }
+}
@@ -0,0 +1,255 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>JunctionSolver</code> implements a solver for
+ * <code>Maze</code> objects that searches the
+ * <code>JunctionGraph</code> of the maze instead of the maze itself,
+ * and finds a <em>shortest</em> path from the start node to a goal.
+ * <p>
+ * The search is a single-thread Dijkstra search over junctions,
+ * whose open set is an indexed binary heap of junction numbers.
+ * Since every goal is a junction, the search stops as soon as it
+ * expands one. If the start node lies in the middle of a corridor,
+ * the search begins from the junctions at both ends of the corridor.
+ * The path found is then expanded back into a path of maze nodes by
+ * walking along every corridor it goes through.
+ * <p>
+ * Goals of queries other than the maze's default goals may lie
+ * inside corridors. For such queries, the search also walks every
+ * corridor it relaxes, remembering the nearest goal found on a
+ * corridor so far; it stops as soon as no junction left to expand
+ * is nearer than that goal.
+ * <p>
+ * Building the junction graph takes time linear in the size of the
+ * maze, but it is done once per maze: a graph can be passed to any
+ * number of solvers, which then only search the junctions. Method
+ * <code>statistics</code> reports the size of the graph, the time it
+ * took to build it, and the number of expanded junctions.
+ */
+
+public class JunctionSolver
+    extends SequentialSolver
+{
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal, building the junction graph of the maze.
+     *
+     * @param maze   the maze to be searched
+     */
+    public JunctionSolver(Maze maze)
+    {
+        this(new JunctionGraph(maze));
+    }
+
+    /**
+     * Creates a solver that searches in the maze of
+     * <code>graph</code> from the start node to a goal, using
+     * <code>graph</code> as the junction graph of the maze.
+     *
+     * @param graph   the junction graph of the maze to be searched
+     */
+    public JunctionSolver(JunctionGraph graph)
+    {
+        super(graph.maze());
+        this.graph = graph;
+        int junctions = graph.junctions();
+        open = new IntMinHeap(junctions);
+        closed = new boolean[junctions];
+        distance = new int[junctions];
+        predecessor = new int[junctions];
+        via = new int[junctions];
+    }
+
+    /**
+     * Does nothing: all data structures depend on the junction
+     * graph, and are initialized when it is available.
+     */
+    @Override
+    protected void initStructures()
+    {
+    }
+
+    /**
+     * The junction graph of the maze.
+     */
+    protected final JunctionGraph graph;
+    // junctions reached but not expanded yet, ordered by distance
+    private final IntMinHeap open;
+    private final boolean[] closed;
+    // distance[j] is the length of the shortest path found so far
+    // to junction j, if it has been reached
+    private final int[] distance;
+    // predecessor[j] is the index in the maze of the junction (or
+    // start node) before j on that path, and via[j] the first node
+    // on the corridor between them
+    private final int[] predecessor;
+    private final int[] via;
+    private int expanded;
+    // nearest goal found inside a corridor, with its distance from the
+    // start node, and the corridor's end and via node from which the
+    // search reached it; corridorGoal is -1 if there is none
+    private int corridorGoal = -1;
+    private int corridorGoalDistance = Integer.MAX_VALUE;
+    private int corridorFrom, corridorVia;
+    private final IntStack corridor = new IntStack();
+
+    @Override
+    public String statistics()
+    {
+        return "Junctions: " + graph.junctions() + " of " + maze.size()
+            + " cells, edges: " + graph.edges()
+            + ", built in " + graph.buildTime() + " ms"
+            + ", junctions expanded: " + expanded;
+    }
+
+    /**
+     * Searches for and returns a shortest path, as a list of node
+     * identifiers, that goes from the start node to a goal node in
+     * the maze. If such a path cannot be found (because there are no
+     * goals, or all goals are unreacheable), the method returns
+     * <code>null</code>.
+     *
+     * @return   the list of node identifiers of a shortest path from the
+     *           start node to a goal node in the maze; <code>null</code>
+     *           if such a path cannot be found
+     */
+    @Override
+    public List<Integer> compute()
+    {
+        int player = maze.newPlayer(start);
+        int startIndex = maze.indexOf(start);
+        int first = graph.junctionAt(startIndex);
+        boolean scan = !query.hasMazeGoals();
+        if (first >= 0) {
+            reach(first, 0, -1, -1);
+        } else if (query.hasGoalAt(startIndex)) {
+            return List.of(start);
+        } else {
+            // begin from the ends of the corridor of the start node
+            int count = maze.neighborsAt(startIndex, neighbors);
+            for (int k = 0; k < count; k++) {
+                if (scan)
+                    scanCorridor(startIndex, neighbors[k], 0);
+                long walk = graph.walk(startIndex, neighbors[k], null);
+                int end = JunctionGraph.endOf(walk);
+                if (end != startIndex)
+                    reach(graph.junctionAt(end), JunctionGraph.lengthOf(walk),
+                          startIndex, neighbors[k]);
+            }
+        }
+        while (!open.isEmpty()) {
+            int current = open.poll();
+            if (distance[current] >= corridorGoalDistance)
+                break;
+            closed[current] = true;
+            expanded += 1;
+            int index = graph.indexOf(current);
+            maze.move(player, maze.idAt(index));
+            if (query.hasGoalAt(index))
+                return pathTo(current);
+            for (int e = graph.firstEdge(current); e < graph.firstEdge(current + 1); e++) {
+                if (scan)
+                    scanCorridor(index, graph.via(e), distance[current]);
+                reach(graph.target(e), distance[current] + graph.length(e),
+                      index, graph.via(e));
+            }
+        }
+        if (corridorGoal < 0)
+            return null;
+        // the path to the node where the search entered the
+        // corridor, and then along the corridor up to the goal
+        List<Integer> path;
+        if (graph.junctionAt(corridorFrom) >= 0)
+            path = pathTo(graph.junctionAt(corridorFrom));
+        else
+            path = new ArrayList<>(List.of(start));
+        corridor.clear();
+        graph.walk(corridorFrom, corridorVia, corridor);
+        for (int k = 0; k < corridor.size(); k++) {
+            path.add(maze.idAt(corridor.get(k)));
+            if (corridor.get(k) == corridorGoal)
+                break;
+        }
+        return path;
+    }
+
+    // look for a goal inside the corridor leaving node from through
+    // node through, where from is at distance base from the start node
+    private void scanCorridor(int from, int through, int base)
+    {
+        corridor.clear();
+        graph.walk(from, through, corridor);
+        // the last node is a junction, or from itself
+        for (int k = 0; k < corridor.size() - 1; k++) {
+            if (base + k + 1 >= corridorGoalDistance)
+                return;
+            if (query.hasGoalAt(corridor.get(k))) {
+                corridorGoal = corridor.get(k);
+                corridorGoalDistance = base + k + 1;
+                corridorFrom = from;
+                corridorVia = through;
+                return;
+            }
+        }
+    }
+
+    // record that junction j can be reached with a path of length
+    // newDistance from node from through node through, if that is
+    // the shortest path to it found so far
+    private void reach(int j, int newDistance, int from, int through)
+    {
+        if (closed[j])
+            return;
+        if (open.contains(j)) {
+            if (newDistance >= distance[j])
+                return;
+            open.decrease(j, newDistance);
+        } else {
+            open.insert(j, newDistance);
+        }
+        distance[j] = newDistance;
+        predecessor[j] = from;
+        via[j] = through;
+    }
+
+    /**
+     * Returns the path, as a list of node identifiers, that goes
+     * from the start node to a given junction, expanding every edge
+     * on the shortest path to the junction into the nodes of its
+     * corridor.
+     *
+     * @param j   the number of an expanded junction
+     * @return    the list of node identifiers from the start node to
+     *            junction <code>j</code>
+     */
+    protected List<Integer> pathTo(int j)
+    {
+        // collect the hops backward, then walk them forward
+        IntStack hops = new IntStack();
+        int current = j;
+        while (predecessor[current] >= 0) {
+            hops.push(current);
+            // a start node on a corridor is not a junction
+            current = graph.junctionAt(predecessor[current]);
+            if (current < 0)
+                break;
+        }
+        IntStack cells = new IntStack();
+        cells.push(maze.indexOf(start));
+        while (!hops.isEmpty()) {
+            int hop = hops.pop();
+            graph.walk(predecessor[hop], via[hop], cells);
+        }
+        int[] indexes = new int[cells.size()];
+        cells.copyTo(indexes, 0);
+        List<Integer> path = new ArrayList<>(indexes.length);
+        for (int index: indexes)
+            path.add(maze.idAt(index));
+        return path;
+    }
+}
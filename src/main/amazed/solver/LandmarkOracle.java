@@ -0,0 +1,304 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <code>LandmarkOracle</code> provides lower bounds on the distance
+ * between any two nodes of a <code>Maze</code>, computed from the
+ * exact distances between every node and a few <em>landmark</em>
+ * nodes (the ALT technique: A*, landmarks, and triangle inequality).
+ * <p>
+ * For every landmark <code>L</code> and nodes <code>a</code> and
+ * <code>b</code>, the triangle inequality gives
+ * <code>d(a, b) &gt;= |d(L, a) - d(L, b)|</code>; the oracle's bound
+ * is the largest of these differences over all landmarks, and the
+ * Manhattan distance between <code>a</code> and <code>b</code>. Like
+ * the Manhattan distance, the bound is an admissible and consistent
+ * heuristic, but it also accounts for the walls around the
+ * landmarks, so that it is much tighter in mazes with long detours.
+ * <p>
+ * Landmarks are spread evenly along the border of the maze, where
+ * they are most useful: each is the accessible node, in the largest
+ * connected component, nearest to a point on the border. The
+ * distances from the landmarks are computed by breadth-first
+ * searches, one fork/join task per landmark, and are stored in one
+ * array per landmark: <code>short</code> arrays, holding distances
+ * up to 65534, when the maze has fewer nodes than that, and
+ * <code>int</code> arrays otherwise. Methods <code>memory</code> and
+ * <code>buildTime</code> report the cost of an oracle, which is built
+ * once and is read-only afterwards, so that it can be shared by any
+ * number of searches of the same maze, also concurrently.
+ */
+
+public class LandmarkOracle
+{
+    /**
+     * The number of landmarks used when none is given.
+     */
+    public static final int DEFAULT_LANDMARKS = 8;
+
+    // unsigned distance in short arrays of unreachable nodes
+    private static final int UNREACHABLE = 0xFFFF;
+
+    private final Maze maze;
+    private final int[] landmarks;
+    // exactly one of these is not null: distances from landmark k
+    // to node index are in shortDistance[k][index] (unsigned) or in
+    // intDistance[k][index], UNREACHABLE or -1 if unreachable
+    private final short[][] shortDistance;
+    private final int[][] intDistance;
+    private final long buildTime;
+
+    /**
+     * Builds an oracle for <code>maze</code> with
+     * <code>DEFAULT_LANDMARKS</code> landmarks.
+     *
+     * @param maze   the maze whose distances are estimated
+     */
+    public LandmarkOracle(Maze maze)
+    {
+        this(maze, DEFAULT_LANDMARKS);
+    }
+
+    /**
+     * Builds an oracle for <code>maze</code> with a given number of
+     * landmarks, with the fork/join pool of the calling thread if it
+     * is a worker of one, and with the common pool otherwise.
+     *
+     * @param maze   the maze whose distances are estimated
+     * @param k      the number of landmarks; if <code>k &lt;= 0</code>,
+     *               the oracle only uses Manhattan distances
+     */
+    public LandmarkOracle(Maze maze, int k)
+    {
+        long begin = System.nanoTime();
+        this.maze = maze;
+        int size = maze.size();
+        landmarks = new int[Math.max(k, 0)];
+        Arrays.fill(landmarks, -1);
+        if (size < UNREACHABLE) {
+            shortDistance = new short[landmarks.length][];
+            intDistance = null;
+        } else {
+            shortDistance = null;
+            intDistance = new int[landmarks.length][];
+        }
+        int component = largestComponent();
+        Landmark[] tasks = new Landmark[landmarks.length];
+        for (int l = 0; l < tasks.length; l++)
+            tasks[l] = new Landmark(this, l, component);
+        RecursiveAction.invokeAll(tasks);
+        buildTime = System.nanoTime() - begin;
+    }
+
+    /**
+     * Returns the maze whose distances this oracle estimates.
+     *
+     * @return   the maze of this oracle
+     */
+    public Maze maze()
+    {
+        return maze;
+    }
+
+    /**
+     * Returns the number of landmarks of the oracle. If the maze has
+     * no accessible nodes, the oracle has no landmarks.
+     *
+     * @return   the number of landmarks
+     */
+    public int landmarks()
+    {
+        int count = 0;
+        for (int landmark: landmarks)
+            if (landmark >= 0)
+                count += 1;
+        return count;
+    }
+
+    /**
+     * Returns the size of the distance arrays of the oracle.
+     *
+     * @return   the memory taken by the distances, in bytes
+     */
+    public long memory()
+    {
+        long perNode = (shortDistance != null) ? Short.BYTES : Integer.BYTES;
+        return perNode * landmarks() * maze.size();
+    }
+
+    /**
+     * Returns the time it took to build the oracle.
+     *
+     * @return   the build time in milliseconds
+     */
+    public long buildTime()
+    {
+        return buildTime / 1_000_000;
+    }
+
+    /**
+     * Returns a summary of the size and cost of the oracle.
+     *
+     * @return   the number of landmarks, the memory taken by the
+     *           distances, and the build time
+     */
+    public String statistics()
+    {
+        return "Landmarks: " + landmarks() + ", " + memory() / 1024 + " KiB"
+            + ", built in " + buildTime() + " ms";
+    }
+
+    /**
+     * Returns the distance between a landmark and a node.
+     *
+     * @param l       the number of a landmark, in
+     *                <code>[0, landmarks())</code>
+     * @param index   the index of a node in the maze
+     * @return        the length of a shortest path between landmark
+     *                <code>l</code> and the node at <code>index</code>;
+     *                <code>-1</code> if there is no such path
+     */
+    public int distance(int l, int index)
+    {
+        if (shortDistance != null) {
+            int distance = Short.toUnsignedInt(shortDistance[l][index]);
+            return (distance == UNREACHABLE) ? -1 : distance;
+        }
+        return intDistance[l][index];
+    }
+
+    /**
+     * Returns a lower bound on the distance between two nodes.
+     *
+     * @param index        the index of a node in the maze
+     * @param otherIndex   the index of another node in the maze
+     * @return             a lower bound on the length of any path
+     *                     between the nodes at <code>index</code> and
+     *                     <code>otherIndex</code>
+     */
+    public int lowerBound(int index, int otherIndex)
+    {
+        int bound = maze.distanceAt(index, otherIndex);
+        for (int l = 0; l < landmarks.length; l++) {
+            if (landmarks[l] < 0)
+                continue;
+            int distance = distance(l, index);
+            int otherDistance = distance(l, otherIndex);
+            // a landmark in another component tells nothing
+            if (distance >= 0 && otherDistance >= 0)
+                bound = Math.max(bound, Math.abs(distance - otherDistance));
+        }
+        return bound;
+    }
+
+    // label of the connected component with the most nodes
+    private int largestComponent()
+    {
+        int size = maze.size();
+        int[] count = new int[size];
+        int largest = -1;
+        for (int index = 0; index < size; index++) {
+            int component = maze.componentAt(index);
+            if (component >= 0) {
+                count[component] += 1;
+                if (largest < 0 || count[component] > count[largest])
+                    largest = component;
+            }
+        }
+        return largest;
+    }
+
+    // selects landmark l, and computes the distances from it
+    private static class Landmark
+        extends RecursiveAction
+    {
+        private final LandmarkOracle oracle;
+        private final int l;
+        private final int component;
+
+        Landmark(LandmarkOracle oracle, int l, int component)
+        {
+            this.oracle = oracle;
+            this.l = l;
+            this.component = component;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (component < 0)
+                return;
+            int landmark = select();
+            oracle.landmarks[l] = landmark;
+            int[] distance = breadthFirstSearch(landmark);
+            if (oracle.shortDistance != null) {
+                short[] compact = new short[distance.length];
+                for (int index = 0; index < distance.length; index++)
+                    compact[index] = (short) ((distance[index] < 0) ? UNREACHABLE : distance[index]);
+                oracle.shortDistance[l] = compact;
+            } else {
+                oracle.intDistance[l] = distance;
+            }
+        }
+
+        // the node in component nearest to the l-th of landmarks.length
+        // points evenly spaced clockwise along the border
+        private int select()
+        {
+            Maze maze = oracle.maze;
+            int rows = maze.rows(), columns = maze.columns();
+            long perimeter = 2L*(rows + columns);
+            int position = (int) (perimeter * l / oracle.landmarks.length);
+            int row, column;
+            if (position < columns) {
+                row = 0;
+                column = position;
+            } else if ((position -= columns) < rows) {
+                row = position;
+                column = columns - 1;
+            } else if ((position -= rows) < columns) {
+                row = rows - 1;
+                column = columns - 1 - position;
+            } else {
+                row = rows - 1 - (position - columns);
+                column = 0;
+            }
+            int point = row*columns + column;
+            int nearest = -1;
+            for (int index = 0; index < maze.size(); index++) {
+                if (maze.componentAt(index) == component
+                    && (nearest < 0 || maze.distanceAt(index, point) < maze.distanceAt(nearest, point)))
+                    nearest = index;
+            }
+            return nearest;
+        }
+
+        private int[] breadthFirstSearch(int landmark)
+        {
+            Maze maze = oracle.maze;
+            int[] distance = new int[maze.size()];
+            Arrays.fill(distance, -1);
+            int[] queue = new int[maze.size()];
+            int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+            int head = 0, tail = 0;
+            distance[landmark] = 0;
+            queue[tail++] = landmark;
+            while (head < tail) {
+                int current = queue[head++];
+                int count = maze.neighborsAt(current, neighbors);
+                for (int k = 0; k < count; k++) {
+                    int nb = neighbors[k];
+                    if (distance[nb] < 0) {
+                        distance[nb] = distance[current] + 1;
+                        queue[tail++] = nb;
+                    }
+                }
+            }
+            return distance;
+        }
+    }
+}
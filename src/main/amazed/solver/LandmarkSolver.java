@@ -0,0 +1,93 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+/**
+ * <code>LandmarkSolver</code> implements a solver for
+ * <code>Maze</code> objects using A* search guided by a
+ * <code>LandmarkOracle</code>, which finds a <em>shortest</em> path
+ * from the start node to a goal.
+ * <p>
+ * The search is the same as <code>AStarSolver</code>'s, but the
+ * estimate of the distance from a node to the nearest goal is the
+ * oracle's lower bound, which takes walls into account, rather than
+ * the Manhattan distance alone. Hence, the search expands fewer
+ * nodes, especially in mazes where the shortest path makes long
+ * detours.
+ * <p>
+ * Building the oracle takes a breadth-first search of the maze per
+ * landmark, but it is done once per maze: an oracle can be passed to
+ * any number of solvers, which then only pay for their search.
+ * Method <code>statistics</code> reports the size and build time of
+ * the oracle, and the number of expanded nodes.
+ */
+
+public class LandmarkSolver
+    extends AStarSolver
+{
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal, building an oracle with
+     * <code>LandmarkOracle.DEFAULT_LANDMARKS</code> landmarks.
+     *
+     * @param maze   the maze to be searched
+     */
+    public LandmarkSolver(Maze maze)
+    {
+        this(new LandmarkOracle(maze));
+    }
+
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal, building an oracle with a given number of
+     * landmarks.
+     *
+     * @param maze   the maze to be searched
+     * @param k      the number of landmarks
+     */
+    public LandmarkSolver(Maze maze, int k)
+    {
+        this(new LandmarkOracle(maze, k));
+    }
+
+    /**
+     * Creates a solver that searches in the maze of
+     * <code>oracle</code> from the start node to a goal, using
+     * <code>oracle</code> to estimate distances.
+     *
+     * @param oracle   the landmark oracle of the maze to be searched
+     */
+    public LandmarkSolver(LandmarkOracle oracle)
+    {
+        super(oracle.maze());
+        this.oracle = oracle;
+    }
+
+    /**
+     * The oracle estimating distances in the maze.
+     */
+    protected final LandmarkOracle oracle;
+
+    @Override
+    public String statistics()
+    {
+        return oracle.statistics() + ", " + super.statistics();
+    }
+
+    /**
+     * Returns the oracle's lower bound on the distance from a node to
+     * the nearest goal.
+     *
+     * @param index   the index of a node in the maze
+     * @return        a lower bound on the length of any path from the
+     *                node at <code>index</code> to a goal
+     */
+    @Override
+    protected int estimate(int index)
+    {
+        int min = Integer.MAX_VALUE;
+        for (int goal: goals)
+            min = Math.min(min, oracle.lowerBound(index, goal));
+        return min;
+    }
+}
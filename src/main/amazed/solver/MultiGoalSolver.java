@@ -0,0 +1,139 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <code>MultiGoalSolver</code> implements a solver for
+ * <code>Maze</code> objects that finds shortest paths from the start
+ * node to <em>all</em> reachable goals, or to the <code>k</code> goals
+ * nearest to the start node, in a single fork/join breadth-first
+ * traversal.
+ * <p>
+ * The traversal is that of <code>ParallelBreadthFirstSolver</code>,
+ * but reaching a goal does not stop it: the goal is recorded and the
+ * traversal goes on. All goals share the same predecessor table in
+ * the <code>SearchContext</code>, from which every path is
+ * reconstructed once the traversal is over. Since a goal reached at
+ * a level is at the same distance from the start node as that
+ * level's, the traversal stops as soon as a level completes with at
+ * least <code>k</code> goals reached, or with all goals reached.
+ * <p>
+ * Method <code>compute</code> returns the path to the nearest goal,
+ * as every other solver does; method <code>paths</code> returns the
+ * paths to all reached goals.
+ */
+
+public class MultiGoalSolver
+    extends ParallelBreadthFirstSolver
+{
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to all goals.
+     *
+     * @param maze   the maze to be searched
+     */
+    public MultiGoalSolver(Maze maze)
+    {
+        this(maze, 0);
+    }
+
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to the <code>k</code> nearest goals.
+     *
+     * @param maze   the maze to be searched
+     * @param k      the number of goals to be reached; if
+     *               <code>k &lt;= 0</code>, all goals are to be reached
+     */
+    public MultiGoalSolver(Maze maze, int k)
+    {
+        super(maze);
+        this.k = k;
+    }
+
+    /**
+     * The number of goals to be reached; all goals if
+     * <code>k &lt;= 0</code>.
+     */
+    protected final int k;
+
+    // reached[0..count) are the indexes of the reached goals,
+    // in nondecreasing distance from the start node
+    private int[] reached;
+    private final AtomicInteger count = new AtomicInteger();
+    private Map<Integer, List<Integer>> paths = Collections.emptyMap();
+
+    @Override
+    public String statistics()
+    {
+        return "Goals reached: " + paths.size() + ", " + super.statistics();
+    }
+
+    /**
+     * Returns the shortest paths found by the last search to every
+     * reached goal.
+     *
+     * @return   a map from the identifier of every reached goal to a
+     *           shortest path, as a list of node identifiers, from the
+     *           start node to the goal; the map iterates over goals in
+     *           nondecreasing distance from the start node
+     */
+    public Map<Integer, List<Integer>> paths()
+    {
+        return paths;
+    }
+
+    /**
+     * Records that a goal has been reached, and lets the traversal go on.
+     *
+     * @param index   the index of the goal node
+     * @return        <code>false</code>
+     */
+    @Override
+    protected boolean goalReached(int index)
+    {
+        reached[count.getAndIncrement()] = index;
+        return false;
+    }
+
+    /**
+     * Searches for shortest paths to all goals, or to the
+     * <code>k</code> nearest goals, and returns the path to the
+     * nearest goal. If no goal can be reached, the method returns
+     * <code>null</code>.
+     *
+     * @return   the list of node identifiers of a shortest path from the
+     *           start node to the nearest goal node in the maze;
+     *           <code>null</code> if such a path cannot be found
+     */
+    @Override
+    public List<Integer> compute()
+    {
+        int goals = query.goals().length;
+        int limit = (k > 0) ? Math.min(k, goals) : goals;
+        reached = new int[goals];
+        int startIndex = maze.indexOf(start);
+        context.claim(startIndex, -1);
+        if (query.hasGoalAt(startIndex))
+            goalReached(startIndex);
+        int[] frontier = { startIndex };
+        while (frontier.length > 0 && count.get() < limit) {
+            levels += 1;
+            frontier = expand(frontier);
+        }
+        int found = Math.min(count.get(), limit);
+        Map<Integer, List<Integer>> result = new LinkedHashMap<>();
+        for (int i = 0; i < found; i++)
+            result.put(maze.idAt(reached[i]), context.pathTo(reached[i]));
+        paths = result;
+        if (found == 0)
+            return null;
+        return paths.get(maze.idAt(reached[0]));
+    }
+}
@@ -0,0 +1,228 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <code>ParallelBreadthFirstSolver</code> implements a solver for
+ * <code>Maze</code> objects using a level-synchronous fork/join
+ * breadth-first search, which finds a <em>shortest</em> path from the
+ * start node to a goal.
+ * <p>
+ * The search proceeds one level at a time: the frontier holds all
+ * nodes at the same distance from the start node, and expanding it
+ * produces the next frontier with all nodes one step farther away.
+ * Each level's frontier is split into chunks of at most
+ * <code>CHUNK</code> nodes, expanded in parallel by fork/join tasks.
+ * Tasks claim newly reached nodes in the shared
+ * <code>SearchContext</code>, so that every node enters exactly one
+ * next frontier, and collect them in a buffer of their own; when the
+ * level completes, the buffers are concatenated into the next frontier
+ * without any locking.
+ * <p>
+ * The first task that reaches a goal records its path and cancels the
+ * search. Since all goals reached while expanding the same level are
+ * at the same distance from the start node, and no goal is closer
+ * (otherwise it would have been reached at an earlier level), the
+ * returned path has minimal length.
+ */
+
+public class ParallelBreadthFirstSolver
+    extends SequentialSolver
+{
+    /**
+     * The maximum number of frontier nodes expanded by a single task.
+     */
+    public static final int CHUNK = 2048;
+
+    /**
+     * Creates a solver that searches in <code>maze</code> from the
+     * start node to a goal.
+     *
+     * @param maze   the maze to be searched
+     */
+    public ParallelBreadthFirstSolver(Maze maze)
+    {
+        super(maze);
+        this.context = new SearchContext(maze);
+    }
+
+    /**
+     * Does nothing: frontiers are allocated level by level, and
+     * visited nodes and predecessors are kept in <code>context</code>.
+     */
+    @Override
+    protected void initStructures()
+    {
+    }
+
+    /**
+     * The state of the search shared by all the tasks of this solver.
+     */
+    protected final SearchContext context;
+    /**
+     * The number of levels expanded by the search.
+     */
+    protected int levels;
+
+    /**
+     * Returns the state of the search shared by all the tasks of this
+     * solver, including statistics about the search.
+     *
+     * @return   the context of the search performed by this solver
+     */
+    public SearchContext getContext()
+    {
+        return context;
+    }
+
+    @Override
+    public String statistics()
+    {
+        return "Levels: " + levels + ", tasks created: " + context.tasks()
+            + ", nodes visited: " + context.nodes();
+    }
+
+    /**
+     * Searches for and returns a shortest path, as a list of node
+     * identifiers, that goes from the start node to a goal node in
+     * the maze. If such a path cannot be found (because there are no
+     * goals, or all goals are unreacheable), the method returns
+     * <code>null</code>.
+     *
+     * @return   the list of node identifiers of a shortest path from the
+     *           start node to a goal node in the maze; <code>null</code>
+     *           if such a path cannot be found
+     */
+    @Override
+    public List<Integer> compute()
+    {
+        int startIndex = maze.indexOf(start);
+        context.claim(startIndex, -1);
+        if (query.hasGoalAt(startIndex)) {
+            context.complete(context.pathTo(startIndex));
+            return context.result();
+        }
+        int[] frontier = { startIndex };
+        while (frontier.length > 0 && !context.isCancelled()) {
+            levels += 1;
+            frontier = expand(frontier);
+        }
+        return context.result();
+    }
+
+    /**
+     * Called by the task that claims a goal node, in the level where
+     * the goal is first reached. It records the path to the goal as
+     * the result of the search and cancels the search.
+     *
+     * @param index   the index of the goal node
+     * @return        <code>true</code> if the task should stop
+     *                expanding its chunk; <code>false</code> otherwise
+     */
+    protected boolean goalReached(int index)
+    {
+        context.complete(context.pathTo(index));
+        return true;
+    }
+
+    /**
+     * Expands in parallel all nodes in <code>frontier</code>, claiming
+     * their neighbors that have not been visited yet, and returns the
+     * claimed nodes. Every reached goal is passed to
+     * <code>goalReached</code>, and the expansion may stop early if
+     * the search is cancelled.
+     *
+     * @param frontier   the indexes of the nodes at the current level
+     * @return           the indexes of the nodes at the next level
+     */
+    protected int[] expand(int[] frontier)
+    {
+        Expansion expansion = new Expansion(this, frontier, 0, frontier.length);
+        expansion.invoke();
+        int[] next = new int[expansion.size()];
+        expansion.copyTo(next, 0);
+        return next;
+    }
+
+    // expansion of frontier[lo..hi) into the next level, split in
+    // two halves until it has at most CHUNK nodes
+    private static class Expansion
+        extends RecursiveAction
+    {
+        private final ParallelBreadthFirstSolver solver;
+        private final int[] frontier;
+        private final int lo, hi;
+        // halves of a split expansion
+        private Expansion left, right;
+        // next frontier nodes claimed by a leaf expansion
+        private IntStack next;
+
+        Expansion(ParallelBreadthFirstSolver solver, int[] frontier, int lo, int hi)
+        {
+            this.solver = solver;
+            this.frontier = frontier;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (hi - lo > CHUNK) {
+                int mid = (lo + hi) >>> 1;
+                left = new Expansion(solver, frontier, lo, mid);
+                right = new Expansion(solver, frontier, mid, hi);
+                invokeAll(left, right);
+            } else
+                expand();
+        }
+
+        private void expand()
+        {
+            Maze maze = solver.maze;
+            SearchContext context = solver.context;
+            int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+            int player = maze.newPlayer(maze.idAt(frontier[lo]));
+            next = new IntStack(2*(hi - lo));
+            context.addTask();
+            int i;
+            for (i = lo; i < hi && !context.isCancelled(); i++) {
+                int current = frontier[i];
+                maze.move(player, maze.idAt(current));
+                int count = maze.neighborsAt(current, neighbors);
+                for (int k = 0; k < count; k++) {
+                    int nb = neighbors[k];
+                    if (context.claim(nb, current)) {
+                        next.push(nb);
+                        if (solver.query.hasGoalAt(nb)) {
+                            maze.move(player, maze.idAt(nb));
+                            if (solver.goalReached(nb))
+                                break;
+                        }
+                    }
+                }
+            }
+            context.addNodes(i - lo);
+        }
+
+        // number of nodes in the next frontier
+        int size()
+        {
+            if (next != null)
+                return next.size();
+            return left.size() + right.size();
+        }
+
+        // copy the next frontier into `destination' from `offset',
+        // and return the offset after the last copied node
+        int copyTo(int[] destination, int offset)
+        {
+            if (next != null)
+                return next.copyTo(destination, offset);
+            return right.copyTo(destination, left.copyTo(destination, offset));
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+import amazed.maze.Query;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * <code>QueryEngine</code> answers many queries on the same
+ * <code>Maze</code> concurrently, finding a <em>shortest</em> path
+ * for every query.
+ * <p>
+ * An engine owns a dedicated <code>ForkJoinPool</code>, separate from
+ * the common pool, whose workers answer one query each at a time
+ * with a breadth-first search. Every search borrows its visited
+ * set, predecessors, and queue from a <code>SearchScratch</code>;
+ * since the worker gets back the scratch space it released after
+ * its previous query, and resetting it takes constant time, a search
+ * allocates nothing but the path it returns. Queries
+ * whose goals cannot be reached from their start node, according to
+ * <code>Query.mayReachGoal</code>, are answered without searching.
+ * <p>
+ * Queries are submitted with <code>submit</code> or
+ * <code>solveAll</code>, and their results are passed to a callback,
+ * in the order in which they complete, by the worker that answered
+ * them. At most <code>maxInFlight</code> queries are pending at any
+ * time: submitting more blocks until some complete, so that a long
+ * stream of queries never floods the pool. An engine must be closed
+ * when no longer needed, to terminate its workers.
+ */
+
+public class QueryEngine
+    implements AutoCloseable
+{
+    private final Maze maze;
+    private final ForkJoinPool pool;
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder visited = new LongAdder();
+
+    /**
+     * Creates an engine answering queries on <code>maze</code> with
+     * as many workers as available processors.
+     *
+     * @param maze   the maze to be searched
+     */
+    public QueryEngine(Maze maze)
+    {
+        this(maze, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an engine answering queries on <code>maze</code> with
+     * a given number of workers, and at most four pending queries per
+     * worker.
+     *
+     * @param maze          the maze to be searched
+     * @param parallelism   the number of workers
+     */
+    public QueryEngine(Maze maze, int parallelism)
+    {
+        this(maze, parallelism, 4*parallelism);
+    }
+
+    /**
+     * Creates an engine answering queries on <code>maze</code> with
+     * a given number of workers and pending queries.
+     *
+     * @param maze          the maze to be searched
+     * @param parallelism   the number of workers
+     * @param maxInFlight   the maximum number of queries submitted but
+     *                      not completed at any time
+     * @throws IllegalArgumentException   if <code>parallelism</code>
+     *                                    or <code>maxInFlight</code>
+     *                                    is not positive
+     */
+    public QueryEngine(Maze maze, int parallelism, int maxInFlight)
+    {
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("Not a positive number of pending queries: "
+                                               + maxInFlight);
+        this.maze = maze;
+        this.pool = new ForkJoinPool(parallelism);
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Returns a summary of the work done by the engine so far.
+     *
+     * @return   the number of completed queries and of nodes visited
+     *           by their searches
+     */
+    public String statistics()
+    {
+        return "Queries completed: " + completed.sum() + ", nodes visited: " + visited.sum();
+    }
+
+    /**
+     * Submits a query, blocking while <code>maxInFlight</code> queries
+     * are pending, and returns without waiting for it to complete.
+     *
+     * @param query    a query on the maze of this engine
+     * @param result   the callback receiving the query and its result
+     *                 when the query completes: a shortest path, as a
+     *                 list of node identifiers, from the query's start
+     *                 node to one of its goals, or <code>null</code>
+     *                 if there is no such path
+     * @throws IllegalArgumentException     if <code>query</code> is
+     *                                      not on the maze of this engine
+     * @throws InterruptedException         if interrupted while blocked
+     * @throws RejectedExecutionException   if the engine has been closed
+     */
+    public void submit(Query query, BiConsumer<Query, List<Integer>> result)
+    throws InterruptedException
+    {
+        if (query.maze() != maze)
+            throw new IllegalArgumentException("Query on another maze");
+        inFlight.acquire();
+        try {
+            pool.execute(() -> {
+                    try {
+                        result.accept(query, solve(query));
+                    } finally {
+                        completed.increment();
+                        inFlight.release();
+                    }
+                });
+        } catch (RuntimeException e) {
+            // the query will never run, so it is no longer pending
+            inFlight.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Submits all queries in <code>queries</code>, in order, and waits
+     * for all of them to complete.
+     *
+     * @param queries   queries on the maze of this engine
+     * @param result    the callback receiving every query and its
+     *                  result, as in {@link #submit(Query, BiConsumer)}
+     * @throws IllegalArgumentException   if some query is not on the
+     *                                    maze of this engine
+     * @throws InterruptedException       if interrupted while waiting
+     */
+    public void solveAll(Iterable<Query> queries, BiConsumer<Query, List<Integer>> result)
+    throws InterruptedException
+    {
+        for (Query query: queries)
+            submit(query, result);
+        // all permits are available only when no query is pending
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+    }
+
+    /**
+     * Stops accepting queries, and waits for the pending ones to
+     * complete and for the workers to terminate.
+     */
+    @Override
+    public void close()
+    {
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // breadth-first search for query with scratch space of this worker
+    private List<Integer> solve(Query query)
+    {
+        if (!query.mayReachGoal())
+            return null;
+        SearchScratch scratch = SearchScratch.borrow(maze);
+        try {
+            int[] queue = scratch.queue();
+            int[] neighbors = scratch.neighbors();
+            int head = 0, tail = 0;
+            int startIndex = maze.indexOf(query.start());
+            scratch.visit(startIndex, -1);
+            queue[tail++] = startIndex;
+            while (head < tail) {
+                int current = queue[head++];
+                if (query.hasGoalAt(current)) {
+                    visited.add(head);
+                    return scratch.pathTo(maze, current);
+                }
+                int count = maze.neighborsAt(current, neighbors);
+                for (int k = 0; k < count; k++) {
+                    if (scratch.visit(neighbors[k], current))
+                        queue[tail++] = neighbors[k];
+                }
+            }
+            visited.add(head);
+            return null;
+        } finally {
+            scratch.release();
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * <code>SearchContext</code> holds the state shared by all tasks
+ * that cooperate in one parallel search of a maze.
+ * <p>
+ * A root solver creates a fresh context for every search and passes
+ * it to all the tasks it forks, directly or indirectly. The context
+ * includes the set of visited nodes, their predecessors, a
+ * cancellation flag, the result of the search, and statistics about
+ * it.
+ * <p>
+ * Tasks add nodes to the search by <em>claiming</em> them with method
+ * <code>claim</code>. Only the task that successfully claims a node
+ * writes its predecessor, and it does so before pushing the node on
+ * its own frontier or forking a task from it. Hence, the chain of
+ * predecessors from any node that a task pops back to the start node
+ * was written by the task itself or by its ancestors before forking
+ * it, and method <code>pathTo</code> can follow it without further
+ * synchronization. Since nothing is shared
+ * between contexts, any number of independent searches can run side
+ * by side on the same <code>ForkJoinPool</code>.
+ */
+
+public class SearchContext
+{
+    private final Maze maze;
+    private final ConcurrentBitSet visited;
+    private final int[] predecessor;
+    private volatile boolean cancelled;
+    private final AtomicReference<List<Integer>> result = new AtomicReference<>();
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+
+    /**
+     * Creates the context of a new search in <code>maze</code>, with
+     * no visited nodes.
+     *
+     * @param maze   the maze to be searched
+     */
+    public SearchContext(Maze maze)
+    {
+        this.maze = maze;
+        this.visited = new ConcurrentBitSet(maze.size());
+        this.predecessor = new int[maze.size()];
+    }
+
+    /**
+     * Returns the indexes of all nodes visited so far by any task in
+     * the search.
+     *
+     * @return   the set of visited node indexes
+     */
+    public ConcurrentBitSet visited()
+    {
+        return visited;
+    }
+
+    /**
+     * Atomically adds a node to the visited nodes, reached from
+     * another node, unless the node has already been visited.
+     *
+     * @param index   the index of the node to be visited
+     * @param from    the index of the node from which node
+     *                <code>index</code> is reached; <code>-1</code> if
+     *                <code>index</code> is the start node
+     * @return        <code>true</code> if this call visited node
+     *                <code>index</code>, and hence the caller owns it;
+     *                <code>false</code> if it had already been visited
+     */
+    public boolean claim(int index, int from)
+    {
+        if (!visited.set(index))
+            return false;
+        predecessor[index] = from;
+        return true;
+    }
+
+    /**
+     * Adds some nodes to the visited nodes without a predecessor, so
+     * that no task can claim them. This must be done before the
+     * search starts.
+     *
+     * @param indexes   the indexes of the nodes to be excluded from
+     *                  the search
+     */
+    public void exclude(ConcurrentBitSet indexes)
+    {
+        for (int index = indexes.nextSetBit(0); index >= 0;
+             index = indexes.nextSetBit(index + 1))
+            visited.set(index);
+    }
+
+    /**
+     * Returns the path, as a list of node identifiers, that goes from
+     * the start node to a given node following the predecessors
+     * recorded by <code>claim</code>. The caller must have popped or
+     * claimed node <code>index</code>.
+     *
+     * @param index   the index of the final node on the path
+     * @return        the list of node identifiers from the start node
+     *                to the node at <code>index</code>
+     */
+    public List<Integer> pathTo(int index)
+    {
+        List<Integer> path = new ArrayList<>();
+        for (int current = index; current >= 0; current = predecessor[current])
+            path.add(maze.idAt(current));
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Tests whether the search has been cancelled; tasks should stop
+     * as soon as possible once it has.
+     *
+     * @return   <code>true</code> if the search has been cancelled;
+     *           <code>false</code> otherwise
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Cancels the search, asking all tasks to stop.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    /**
+     * Records <code>path</code> as the result of the search, unless
+     * another result has been recorded before, and cancels the search.
+     *
+     * @param path   a path from the start node to a goal
+     * @return       <code>true</code> if <code>path</code> is now the
+     *               result of the search; <code>false</code> if another
+     *               result has been recorded before
+     */
+    public boolean complete(List<Integer> path)
+    {
+        boolean first = result.compareAndSet(null, path);
+        cancel();
+        return first;
+    }
+
+    /**
+     * Returns the result of the search.
+     *
+     * @return   the path recorded by <code>complete</code>;
+     *           <code>null</code> if no path has been recorded
+     */
+    public List<Integer> result()
+    {
+        return result.get();
+    }
+
+    /**
+     * Counts one more task created by the search.
+     */
+    public void addTask()
+    {
+        tasks.increment();
+    }
+
+    /**
+     * Counts <code>count</code> more nodes visited by the search.
+     *
+     * @param count   the number of nodes visited by a task
+     */
+    public void addNodes(long count)
+    {
+        nodes.add(count);
+    }
+
+    /**
+     * Returns the number of tasks created by the search so far,
+     * including the root task. Tasks that are created but never run,
+     * because the search is cancelled before they start, are also
+     * counted.
+     *
+     * @return   the number of tasks created
+     */
+    public long tasks()
+    {
+        return tasks.sum();
+    }
+
+    /**
+     * Returns the number of nodes visited by the search so far.
+     *
+     * @return   the number of nodes visited
+     */
+    public long nodes()
+    {
+        return nodes.sum();
+    }
+}
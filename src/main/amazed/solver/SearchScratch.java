@@ -0,0 +1,216 @@
+package amazed.solver;
+
+import amazed.maze.Maze;
+
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * <code>SearchScratch</code> holds the working structures of one
+ * single-thread search of a <code>Maze</code> &mdash; a set of
+ * visited nodes, a predecessor table, a frontier stack, a queue, and
+ * a neighbor buffer &mdash; so that they can be reused by many searches instead of
+ * being allocated anew for each.
+ * <p>
+ * The visited set is an <code>int</code> array of marks: a node is
+ * visited if its mark equals the current <em>epoch</em>. Method
+ * <code>reset</code> starts a new search by incrementing the epoch,
+ * which empties the set in constant time; only when the epoch
+ * overflows, once every four billion searches or so, are the marks
+ * cleared. Predecessors are only meaningful for visited nodes, and
+ * are never cleared. The queue is only allocated when first
+ * requested, so that depth-first searches do not pay for it.
+ * <p>
+ * Solvers obtain scratch space with <code>borrow</code> and give it
+ * back with <code>release</code> once their search is over. Every
+ * thread caches the last scratch space released by it, and
+ * <code>borrow</code> hands it out again if it is large enough for
+ * the maze; thus, the workers of a pool that repeatedly solve the
+ * same maze allocate their scratch space only once. The cache holds
+ * its scratch space through a soft reference, which the garbage
+ * collector clears when memory runs low, and scratch space for more
+ * than <code>CACHE_LIMIT</code> nodes is never cached: after a
+ * search of a huge maze, no thread keeps its scratch space alive. A
+ * scratch space must only be used by one thread at a time, between
+ * <code>borrow</code> and <code>release</code>.
+ */
+
+public final class SearchScratch
+{
+    /**
+     * Largest number of nodes of a scratch space that is cached for
+     * reuse after its release.
+     */
+    public static final int CACHE_LIMIT = 1 << 24;
+
+    // the scratch space released last by every thread, if any
+    private static final ThreadLocal<SoftReference<SearchScratch>> cache = new ThreadLocal<>();
+
+    // mark[index] == epoch iff index is visited in the current search
+    private final int[] mark;
+    private final int[] predecessor;
+    // allocated on first use
+    private int[] queue;
+    private final IntStack frontier;
+    private final int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+    private int epoch;
+
+    private SearchScratch(int size)
+    {
+        mark = new int[size];
+        predecessor = new int[size];
+        frontier = new IntStack();
+    }
+
+    /**
+     * Returns scratch space for a search of <code>maze</code>, with no
+     * visited nodes and an empty frontier. The space is the one last
+     * released by the calling thread, if it is large enough, or a
+     * newly allocated one otherwise.
+     *
+     * @param maze   the maze to be searched
+     * @return       scratch space sized for <code>maze</code>
+     */
+    public static SearchScratch borrow(Maze maze)
+    {
+        SearchScratch scratch = cached();
+        if (scratch != null && scratch.mark.length >= maze.size()) {
+            cache.remove();
+        } else {
+            scratch = new SearchScratch(maze.size());
+        }
+        scratch.reset();
+        return scratch;
+    }
+
+    /**
+     * Gives back this scratch space, which the caller must no longer
+     * use, so that the calling thread can reuse it unless it is
+     * larger than <code>CACHE_LIMIT</code>.
+     */
+    public void release()
+    {
+        if (mark.length > CACHE_LIMIT)
+            return;
+        SearchScratch cached = cached();
+        if (cached == null || cached.mark.length <= mark.length)
+            cache.set(new SoftReference<>(this));
+    }
+
+    // the scratch space cached by the calling thread, if any
+    private static SearchScratch cached()
+    {
+        SoftReference<SearchScratch> reference = cache.get();
+        return (reference == null) ? null : reference.get();
+    }
+
+    /**
+     * Starts a new search, with no visited nodes and an empty frontier.
+     */
+    public void reset()
+    {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            epoch = 0;
+        }
+        epoch += 1;
+        frontier.clear();
+    }
+
+    /**
+     * Tests whether a node has been visited in the current search.
+     *
+     * @param index   the index of a node in the maze
+     * @return        <code>true</code> if node <code>index</code> has
+     *                been visited; <code>false</code> otherwise
+     */
+    public boolean isVisited(int index)
+    {
+        return mark[index] == epoch;
+    }
+
+    /**
+     * Adds a node to the visited nodes of the current search, reached
+     * from another node, unless it has already been visited.
+     *
+     * @param index   the index of the node to be visited
+     * @param from    the index of the node from which node
+     *                <code>index</code> is reached; <code>-1</code> if
+     *                <code>index</code> is the start node
+     * @return        <code>true</code> if node <code>index</code> had
+     *                not been visited; <code>false</code> otherwise
+     */
+    public boolean visit(int index, int from)
+    {
+        if (mark[index] == epoch)
+            return false;
+        mark[index] = epoch;
+        predecessor[index] = from;
+        return true;
+    }
+
+    /**
+     * Returns the node from which a visited node was reached.
+     *
+     * @param index   the index of a visited node
+     * @return        the index of the predecessor of node
+     *                <code>index</code>; <code>-1</code> for the
+     *                start node
+     */
+    public int predecessor(int index)
+    {
+        return predecessor[index];
+    }
+
+    /**
+     * Returns an array with room for every node of the maze, for
+     * searches that keep their frontier in a queue. The array is
+     * allocated the first time it is requested.
+     *
+     * @return   the queue array of this scratch space
+     */
+    public int[] queue()
+    {
+        if (queue == null)
+            queue = new int[mark.length];
+        return queue;
+    }
+
+    /**
+     * Returns a buffer with room for the neighbors of any node, to be
+     * passed to <code>Maze.neighborsAt</code>.
+     *
+     * @return   the neighbor buffer of this scratch space
+     */
+    public int[] neighbors()
+    {
+        return neighbors;
+    }
+
+    // the frontier stack, empty at the start of every search
+    IntStack frontier()
+    {
+        return frontier;
+    }
+
+    /**
+     * Returns the path, as a list of node identifiers, that goes from
+     * the start node to a given visited node following predecessors.
+     *
+     * @param maze    the maze being searched
+     * @param index   the index of a visited node
+     * @return        the list of node identifiers from the start node
+     *                to the node at <code>index</code>
+     */
+    public List<Integer> pathTo(Maze maze, int index)
+    {
+        List<Integer> path = new ArrayList<>();
+        for (int current = index; current >= 0; current = predecessor[current])
+            path.add(maze.idAt(current));
+        Collections.reverse(path);
+        return path;
+    }
+}
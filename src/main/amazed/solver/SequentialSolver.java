@@ -1,16 +1,12 @@
 package amazed.solver;
 
 import amazed.maze.Maze;
+import amazed.maze.Query;
 
 import java.util.concurrent.RecursiveTask;
 
 import java.util.List;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.HashMap;
-import java.util.Set;
-import java.util.HashSet;
-import java.util.Stack;
+import java.util.ArrayList;
 import java.util.Collections;
 
 /**
@@ -23,20 +19,30 @@ import java.util.Collections;
  * node identifiers in the maze that lead from the start node to a
  * goal.
  * <p>
- * Depth-first search is implemented using a stack of
- * <code>frontier</code> nodes &mdash; giving the nodes to be explored
- * next in depth-first order. Visited nodes are added to a set
- * <code>visited</code>. For each visited node,
- * <code>predecessor</code> keeps track of the other node adjacent to
- * the visited node that has been visited just before it. Method
+ * Depth-first search is implemented using a stack of frontier nodes
+ * &mdash; giving the nodes to be explored next in depth-first order,
+ * each with the node from which it was pushed. Visited nodes are
+ * marked as such, and for each visited node the search keeps track
+ * of its predecessor: the other node adjacent to the visited node
+ * that has been visited just before it. Method
  * <code>pathFromTo</code> reconstructs a path by following the
- * <code>precedessor</code> relation backwards.
+ * predecessors backwards. The stack, the visited marks, and the
+ * predecessors are borrowed from a <code>SearchScratch</code> for
+ * the duration of <code>compute</code>, so that repeated searches by
+ * the same thread allocate nothing but their result.
+ * <p>
+ * Every solver answers a <code>Query</code>: by default, the query
+ * from the maze's start node to its goals; method
+ * <code>setQuery</code> makes the solver search from any node to any
+ * goals instead. Hence, a single maze can serve any number of
+ * queries, each answered by its own solver.
  *
  * @author  Carlo A. Furia
  */
 
 public class SequentialSolver
     extends RecursiveTask<List<Integer>>
+    implements SolverStatistics
 {
     /**
      * Creates a solver that searches in <code>maze</code> from the
@@ -47,20 +53,19 @@ public class SequentialSolver
     public SequentialSolver(Maze maze)
     {
         this.maze = maze;
-        this.start = maze.start();
+        this.query = new Query(maze);
+        this.start = query.start();
         initStructures();
     }
 
     /**
-     * Initializes <code>visited</code>, <code>predecessor</code>, and
-     * <code>frontier</code> with empty data structures for sequential
-     * access.
+     * Initializes the data structures of the search that are
+     * allocated once per solver. Does nothing in
+     * <code>SequentialSolver</code>, whose structures are borrowed by
+     * <code>compute</code>.
      */
     protected void initStructures()
     {
-        visited = new HashSet<>();
-        predecessor = new HashMap<>();
-        frontier = new Stack<>();
     }
 
     /**
@@ -76,27 +81,86 @@ public class SequentialSolver
     protected int forkAfter = 0;
 
     /**
-     * Set of identifiers of all nodes visited so far during the
-     * search.
-     */
-    protected Set<Integer> visited;
-    /**
-     * If <code>(m -&gt; n)</code> is in <code>precedessor</code>, then
-     * the node with identifier <code>n</code> has been first visited
-     * from its neighbor node with identifier <code>m</code> during
-     * the search.
+     * The visited nodes, their predecessors, and the frontier of the
+     * search, while <code>compute</code> runs; <code>null</code>
+     * otherwise.
      */
-    protected Map<Integer, Integer> predecessor;
+    protected SearchScratch scratch;
     /**
-     * The nodes in the maze to be visited next. Using a stack
-     * implements a search that goes depth first..
+     * The number of nodes visited by the search.
      */
-    protected Stack<Integer> frontier;
+    protected int visitedCount;
     /**
      * The identifier of the node in the maze from where the search
      * starts.
      */
     protected int start;
+    /**
+     * The query answered by the search, which determines the start
+     * node and the goals.
+     */
+    protected Query query;
+    /**
+     * Buffer receiving the neighbors of the node being expanded, so
+     * that expanding a node does not allocate.
+     */
+    protected final int[] neighbors = new int[Maze.MAX_NEIGHBORS];
+    /**
+     * Indexes of the nodes that the search skips, as set by
+     * <code>prune</code>; <code>null</code> if the search skips no
+     * nodes.
+     */
+    protected ConcurrentBitSet pruned;
+
+    /**
+     * Makes the solver answer <code>query</code>, starting from its
+     * start node and looking for its goals, instead of the default
+     * query of the maze. The method must be called before the search
+     * starts.
+     *
+     * @param query   the query to be answered, on the maze of this
+     *                solver
+     * @throws IllegalArgumentException   if <code>query</code> is not
+     *                                    on the maze of this solver
+     */
+    public void setQuery(Query query)
+    {
+        if (query.maze() != maze)
+            throw new IllegalArgumentException("Query on another maze");
+        this.query = query;
+        this.start = query.start();
+    }
+
+    /**
+     * Returns the query answered by this solver.
+     *
+     * @return   the query of this solver
+     */
+    public Query getQuery()
+    {
+        return query;
+    }
+
+    /**
+     * Makes the search skip some nodes, which must not include the
+     * start node, as if they were not in the maze. This is meant to
+     * prune nodes that cannot be on a path to a goal, such as those
+     * filled by <code>DeadEndFilling</code>, so that the search visits
+     * fewer nodes. The method must be called before the search
+     * starts. Solvers that do not support pruning ignore it.
+     *
+     * @param pruned   the indexes of the nodes to be skipped
+     */
+    public void prune(ConcurrentBitSet pruned)
+    {
+        this.pruned = pruned;
+    }
+
+    @Override
+    public String statistics()
+    {
+        return "Nodes visited: " + visitedCount;
+    }
 
     /**
      * Searches for and returns the path, as a list of node
@@ -112,40 +176,63 @@ public class SequentialSolver
     @Override
     public List<Integer> compute()
     {
-        return depthFirstSearch();
+        scratch = SearchScratch.borrow(maze);
+        try {
+            return depthFirstSearch();
+        } finally {
+            scratch.release();
+            scratch = null;
+        }
     }
 
-    private List<Integer> depthFirstSearch()
+    /**
+     * Searches the maze depth first from the start node, using
+     * <code>scratch</code>, which <code>compute</code> borrows for
+     * the duration of the search, and returns the path found.
+     * Subclasses override this method to search differently within
+     * the same scratch space.
+     *
+     * @return   the list of node identifiers from the start node to a
+     *           goal node in the maze; <code>null</code> if such a path
+     *           cannot be found
+     */
+    protected List<Integer> depthFirstSearch()
     {
         // one player active on the maze at start
         int player = maze.newPlayer(start);
-        // start with start node
-        frontier.push(start);
+        // start with start node, which has no predecessor
+        IntStack frontier = scratch.frontier();
+        frontier.push(maze.indexOf(start));
+        frontier.push(-1);
         // as long as not all nodes have been processed
-        while (!frontier.empty()) {
-            // get the new node to process
+        while (!frontier.isEmpty()) {
+            // get the new node to process, and the node it was pushed from
+            int from = frontier.pop();
             int current = frontier.pop();
             // if current node has a goal
-            if (maze.hasGoal(current)) {
+            if (query.hasGoalAt(current)) {
+                scratch.visit(current, from);
                 // move player to goal
-                maze.move(player, current);
+                maze.move(player, maze.idAt(current));
                 // search finished: reconstruct and return path
-                return pathFromTo(start, current);
+                return pathFromTo(start, maze.idAt(current));
             }
-            // if current node has not been visited yet
-            if (!visited.contains(current)) {
+            // if current node has not been visited yet, mark it as
+            // visited, reached from its predecessor from
+            if (scratch.visit(current, from)) {
+                visitedCount += 1;
                 // move player to current node
-                maze.move(player, current);
-                // mark node as visited
-                visited.add(current);
+                maze.move(player, maze.idAt(current));
                 // for every node nb adjacent to current
-                for (int nb: maze.neighbors(current)) {
-                    // add nb to the nodes to be processed
+                int count = maze.neighborsAt(current, neighbors);
+                for (int k = 0; k < count; k++) {
+                    int nb = neighbors[k];
+                    // skip nb if it has been pruned or already visited
+                    if ((pruned != null && pruned.get(nb)) || scratch.isVisited(nb))
+                        continue;
+                    // add nb to the nodes to be processed, reached from current
                     frontier.push(nb);
-                    // if nb has not been already visited,
-                    // nb can be reached from current (i.e., current is nb's predecessor)
-                    if (!visited.contains(nb))
-                        predecessor.put(nb, current);
+                    frontier.push(current);
                 }
             }
         }
@@ -156,24 +243,26 @@ public class SequentialSolver
     /**
      * Returns the connected path, as a list of node identifiers, that
      * goes from node <code>from</code> to node <code>to</code>
-     * following the inverse of relation <code>predecessor</code>. If
-     * such a path cannot be reconstructed from
-     * <code>predecessor</code>, the method returns <code>null</code>.
+     * following the predecessors in <code>scratch</code>. If such a
+     * path cannot be reconstructed from <code>scratch</code>, the
+     * method returns <code>null</code>.
      *
      * @param from   the identifier of the initial node on the path
      * @param to     the identifier of the final node on the path
      * @return       the list of node identifiers from <code>from</code> to
      *               <code>to</code> if such a path can be reconstructed from
-     *               <code>predecessor</code>; <code>null</code> otherwise
-     */
-    protected List<Integer> pathFromTo(int from, int to) {
-        List<Integer> path = new LinkedList<>();
-        Integer current = to;
-        while (current != from) {
-            path.add(current);
-            current = predecessor.get(current);
-            if (current == null)
+     *               <code>scratch</code>; <code>null</code> otherwise
+     */
+    protected List<Integer> pathFromTo(int from, int to)
+    {
+        int fromIndex = maze.indexOf(from);
+        List<Integer> path = new ArrayList<>();
+        int current = maze.indexOf(to);
+        while (current != fromIndex) {
+            if (current < 0 || !scratch.isVisited(current))
                 return null;
+            path.add(maze.idAt(current));
+            current = scratch.predecessor(current);
         }
         path.add(from);
         Collections.reverse(path);
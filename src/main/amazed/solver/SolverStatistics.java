@@ -0,0 +1,18 @@
+package amazed.solver;
+
+/**
+ * <code>SolverStatistics</code> is implemented by solvers that
+ * collect statistics about their search, such as the number of
+ * visited nodes or of created tasks.
+ */
+
+public interface SolverStatistics
+{
+    /**
+     * Returns a one-line, human-readable summary of the statistics
+     * of the last search.
+     *
+     * @return   the summary of the search statistics
+     */
+    String statistics();
+}